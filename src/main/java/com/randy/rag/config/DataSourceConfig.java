@@ -0,0 +1,76 @@
+package com.randy.rag.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Primary pool from spring.datasource plus one read-only pool per rag.replicas.urls entry. The DataSource everyone
+ * injects routes read-only transactions to a replica and all other work (ingestion, KG writes, schema init) to
+ * the primary; each pool reports its own hikaricp.* metrics under its pool name.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        PgVectorDataSource.install(dataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             MeterRegistry meterRegistry,
+                                                             @Value("${rag.replicas.urls:}") String urls,
+                                                             @Value("${rag.replicas.pool-size:10}") int poolSize,
+                                                             @Value("${rag.replicas.connection-timeout-ms:2000}") long connectionTimeoutMillis,
+                                                             @Value("${rag.replicas.max-lag-ms:5000}") long maxLagMillis,
+                                                             @Value("${rag.replicas.health-check-ms:5000}") long healthCheckMillis) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList()) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url);
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            config.setMaximumPoolSize(Math.max(1, poolSize));
+            config.setReadOnly(true);
+            config.setConnectionTimeout(connectionTimeoutMillis);
+            // A replica that is down at startup must not stop the application; the health check routes around it.
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            PgVectorDataSource.install(config);
+            replicas.add(new HikariDataSource(config));
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas, meterRegistry,
+                maxLagMillis, healthCheckMillis);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,124 @@
+package com.randy.rag.config;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+/**
+ * pgvector value that travels in the extension's binary send/recv format
+ * (int16 dim, int16 unused, dim x float4 big-endian) instead of a "[0.1,0.2,...]" text literal.
+ * The text form is still produced lazily for connections opened before the extension was installed.
+ */
+public class PgVector extends PGobject implements PGBinaryObject {
+
+    public static final String TYPE = "vector";
+
+    private static final int HEADER_BYTES = 2 * Short.BYTES;
+
+    private float[] vector;
+
+    public PgVector() {
+        this.type = TYPE;
+    }
+
+    public PgVector(float[] vector) {
+        this();
+        this.vector = vector;
+    }
+
+    /**
+     * Enables binary transfer of vector parameters and results on a freshly opened physical connection.
+     * Pools do this once per connection through {@link PgVectorDataSource}; query code never calls it.
+     * Before the extension exists (first start, ahead of schema-chunks.sql) the connection keeps the text format.
+     */
+    static void register(Connection connection) throws SQLException {
+        BaseConnection pgConnection = connection.unwrap(BaseConnection.class);
+        int oid = pgConnection.getTypeInfo().getPGType(TYPE);
+        if (oid != Oid.UNSPECIFIED) {
+            pgConnection.getQueryExecutor().addBinarySendOid(oid);
+            pgConnection.getQueryExecutor().addBinaryReceiveOid(oid);
+        }
+        connection.unwrap(PGConnection.class).addDataType(TYPE, PgVector.class);
+    }
+
+    public float[] toArray() {
+        return vector;
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return vector == null ? 0 : HEADER_BYTES + Float.BYTES * vector.length;
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, lengthInBytes());
+        buffer.putShort((short) vector.length);
+        buffer.putShort((short) 0);
+        for (float v : vector) {
+            buffer.putFloat(v);
+        }
+    }
+
+    @Override
+    public void setByteValue(byte[] bytes, int offset) throws SQLException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+        int dim = buffer.getShort();
+        buffer.getShort();
+        float[] decoded = new float[dim];
+        for (int i = 0; i < dim; i++) {
+            decoded[i] = buffer.getFloat();
+        }
+        this.vector = decoded;
+    }
+
+    @Override
+    public String getValue() {
+        return vector == null ? null : toLiteral(vector);
+    }
+
+    @Override
+    public void setValue(String value) throws SQLException {
+        this.vector = value == null ? null : parse(value);
+    }
+
+    public static String toLiteral(float[] vector) {
+        StringBuilder builder = new StringBuilder(vector.length * 12 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(vector[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    public static float[] parse(String literal) {
+        String body = literal.trim();
+        if (body.startsWith("[")) {
+            body = body.substring(1, body.length() - 1);
+        }
+        if (body.isBlank()) {
+            return new float[0];
+        }
+        String[] parts = body.split(",");
+        float[] parsed = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Float.parseFloat(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    @Override
+    public PgVector clone() throws CloneNotSupportedException {
+        PgVector copy = (PgVector) super.clone();
+        copy.vector = vector == null ? null : vector.clone();
+        return copy;
+    }
+}
@@ -0,0 +1,119 @@
+package com.randy.rag.config;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.postgresql.ds.PGSimpleDataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+
+/**
+ * Physical connection factory for Hikari pools: every connection the pool opens is passed through
+ * {@link PgVector#register} once, before it is first handed out, so all borrowers see the same vector codec and
+ * queries never touch driver internals. The driver data source is built from the pool's jdbcUrl and
+ * dataSourceProperties when the first connection is opened, i.e. after Spring has bound spring.datasource.hikari.*.
+ */
+public final class PgVectorDataSource implements DataSource {
+
+    private final HikariConfig config;
+    private volatile PGSimpleDataSource target;
+    private volatile int loginTimeoutSeconds;
+
+    private PgVectorDataSource(HikariConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Makes the pool open its connections through this factory; call before the pool is started.
+     */
+    public static void install(HikariConfig config) {
+        config.setDataSource(new PgVectorDataSource(config));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return registered(target().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return registered(target().getConnection(username, password));
+    }
+
+    private static Connection registered(Connection connection) throws SQLException {
+        try {
+            PgVector.register(connection);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private PGSimpleDataSource target() throws SQLException {
+        PGSimpleDataSource current = target;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (target == null) {
+                PGSimpleDataSource dataSource = new PGSimpleDataSource();
+                dataSource.setUrl(config.getJdbcUrl());
+                for (Map.Entry<Object, Object> property : config.getDataSourceProperties().entrySet()) {
+                    dataSource.setProperty(property.getKey().toString(), property.getValue().toString());
+                }
+                dataSource.setLoginTimeout(loginTimeoutSeconds);
+                target = dataSource;
+            }
+            return target;
+        }
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeoutSeconds;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeoutSeconds = seconds;
+        PGSimpleDataSource current = target;
+        if (current != null) {
+            current.setLoginTimeout(seconds);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // The driver logs through java.util.logging.
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
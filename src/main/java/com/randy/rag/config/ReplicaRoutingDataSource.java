@@ -0,0 +1,168 @@
+package com.randy.rag.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends connections for read-only transactions to a healthy read replica (round robin) and everything else to
+ * the primary. A background check marks a replica unhealthy when it is unreachable or its replay lag exceeds
+ * rag.replicas.max-lag-ms; read-only work then falls back to the primary until it recovers. A replica only counts
+ * as caught up when it has replayed the primary's current WAL position or its WAL receiver is streaming, so one
+ * that has lost its upstream connection (and looks caught up with itself) is measured by replay age instead.
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction manager opens its connection before the
+ * read-only flag is bound to the thread.
+ * Publishes rag.datasource.routes{target=primary|replica|fallback}, rag.replica.lag and rag.replica.healthy.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+    // A caught-up replica reports a stale replay timestamp when the primary is idle, so compare LSNs first: one that
+    // has replayed up to the primary's position (read just before) is current, and so is one that has replayed all
+    // it received while its WAL receiver is streaming. NULL means it never replayed anything.
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN pg_last_wal_replay_lsn() >= ?::pg_lsn THEN 0 "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() "
+            + "AND EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter fallbackRoutes;
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, MeterRegistry meterRegistry,
+                                    long maxLagMillis, long healthCheckMillis) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.maxLagMillis = maxLagMillis;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach(replica -> targets.put(replica.name, replica.dataSource));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.primaryRoutes = meterRegistry.counter("rag.datasource.routes", "target", "primary");
+        this.replicaRoutes = meterRegistry.counter("rag.datasource.routes", "target", "replica");
+        this.fallbackRoutes = meterRegistry.counter("rag.datasource.routes", "target", "fallback");
+        for (Replica replica : replicas) {
+            Gauge.builder("rag.replica.lag", replica, r -> r.lagMillis).tag("replica", replica.name)
+                    .baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("rag.replica.healthy", replica, r -> r.healthy ? 1 : 0).tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+        if (replicas.isEmpty()) {
+            this.healthChecker = null;
+            return;
+        }
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, Math.max(500, healthCheckMillis), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                replicaRoutes.increment();
+                return replica.name;
+            }
+        }
+        fallbackRoutes.increment();
+        return PRIMARY;
+    }
+
+    void checkReplicas() {
+        String primaryLsn;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PRIMARY_LSN_SQL)) {
+            primaryLsn = rs.next() ? rs.getString(1) : null;
+        } catch (SQLException e) {
+            // Without the primary there is nothing to compare against, and nothing better to route to either.
+            log.debug("Unable to read the primary WAL position: {}", e.getMessage());
+            return;
+        }
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_SQL)) {
+                statement.setString(1, primaryLsn);
+                double lag = -1;
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next()) {
+                        lag = rs.getDouble(1);
+                        lag = rs.wasNull() ? -1 : lag;
+                    }
+                }
+                replica.lagMillis = lag;
+                healthy = replica.lagMillis >= 0 && replica.lagMillis <= maxLagMillis;
+            } catch (SQLException e) {
+                replica.lagMillis = -1;
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.warn("Replica {} is now {} (lag {} ms)", replica.name, healthy ? "healthy" : "unavailable",
+                        Math.round(replica.lagMillis));
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy;
+        private volatile double lagMillis;
+
+        Replica(HikariDataSource dataSource) {
+            this.name = dataSource.getPoolName();
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.randy.rag.config;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.service.VectorIndexService;
+
+/**
+ * Exposes /actuator/vectorindex with ANN index size, row counts and dead-tuple bloat for chunks.
+ */
+@Component
+@Endpoint(id = "vectorindex")
+public class VectorIndexEndpoint {
+
+    private final VectorIndexService vectorIndexService;
+
+    public VectorIndexEndpoint(VectorIndexService vectorIndexService) {
+        this.vectorIndexService = vectorIndexService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> vectorIndex() {
+        return vectorIndexService.statistics();
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -34,6 +35,8 @@ public class KgAdminController {
         return ResponseEntity.ok(ingestionJob.runOnce(limit));
     }
 
+    // Read-only transactions are served by a read replica when one is configured.
+    @Transactional(readOnly = true)
     @GetMapping("/status")
     public Map<String, Object> status() {
         Integer pending = jdbcTemplate.queryForObject("SELECT COUNT(1) FROM documents WHERE kg_status IS NULL OR kg_status='PENDING'", Integer.class);
@@ -0,0 +1,36 @@
+package com.randy.rag.controller;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.randy.rag.service.LexicalSearchService;
+
+@RestController
+@RequestMapping("/admin/index/lexical")
+public class LexicalIndexAdminController {
+
+    private final LexicalSearchService lexicalSearchService;
+
+    public LexicalIndexAdminController(LexicalSearchService lexicalSearchService) {
+        this.lexicalSearchService = lexicalSearchService;
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        if (!lexicalSearchService.rebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(lexicalSearchService.status());
+        }
+        return ResponseEntity.accepted().body(lexicalSearchService.status());
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return lexicalSearchService.status();
+    }
+}
@@ -8,8 +8,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.randy.rag.model.BatchQueryRequest;
+import com.randy.rag.model.BatchQueryResult;
 import com.randy.rag.model.QueryRequest;
 import com.randy.rag.model.QueryResponse;
+import com.randy.rag.service.BatchQueryService;
 import com.randy.rag.service.QueryService;
 
 import jakarta.validation.Valid;
@@ -21,9 +24,11 @@ import reactor.core.publisher.Flux;
 public class QueryController {
 
     private final QueryService queryService;
+    private final BatchQueryService batchQueryService;
 
-    public QueryController(QueryService queryService) {
+    public QueryController(QueryService queryService, BatchQueryService batchQueryService) {
         this.queryService = queryService;
+        this.batchQueryService = batchQueryService;
     }
 
     @PostMapping
@@ -35,4 +40,9 @@ public class QueryController {
     public Flux<String> queryStream(@Valid @RequestBody QueryRequest request) {
         return queryService.answerStream(request);
     }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchQueryResult> queryBatch(@Valid @RequestBody BatchQueryRequest request) {
+        return batchQueryService.run(request);
+    }
 }
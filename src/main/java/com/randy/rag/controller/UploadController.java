@@ -25,11 +25,13 @@ import com.randy.rag.model.Chunk;
 import com.randy.rag.model.UploadResponse;
 import com.randy.rag.model.graph.DocumentEntity;
 import com.randy.rag.repository.graph.DocumentRepository;
+import com.randy.rag.service.CategoryService;
 import com.randy.rag.service.ChunkService;
 import com.randy.rag.service.EmbeddingService;
 import com.randy.rag.service.KgIngestionJob;
 import com.randy.rag.service.PdfService;
 import com.randy.rag.service.CategoryClassifierService;
+import com.randy.rag.service.VectorIndexService;
 import com.randy.rag.service.VectorStoreService;
 
 @RestController
@@ -46,6 +48,8 @@ public class UploadController {
     private final DocumentRepository documentRepository;
     private final CategoryClassifierService categoryClassifierService;
     private final KgIngestionJob kgIngestionJob;
+    private final CategoryService categoryService;
+    private final VectorIndexService vectorIndexService;
 
     public UploadController(PdfService pdfService,
                             ChunkService chunkService,
@@ -53,7 +57,9 @@ public class UploadController {
                             VectorStoreService vectorStoreService,
                             DocumentRepository documentRepository,
                             CategoryClassifierService categoryClassifierService,
-                            KgIngestionJob kgIngestionJob) {
+                            KgIngestionJob kgIngestionJob,
+                            CategoryService categoryService,
+                            VectorIndexService vectorIndexService) {
         this.pdfService = pdfService;
         this.chunkService = chunkService;
         this.embeddingService = embeddingService;
@@ -61,6 +67,8 @@ public class UploadController {
         this.documentRepository = documentRepository;
         this.categoryClassifierService = categoryClassifierService;
         this.kgIngestionJob = kgIngestionJob;
+        this.categoryService = categoryService;
+        this.vectorIndexService = vectorIndexService;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -88,18 +96,26 @@ public class UploadController {
             String resolvedCategory = resolveCategory(category, extractedText);
             log.info("Upload received: filename={}, documentId={}, category={}", file.getOriginalFilename(), documentId, resolvedCategory);
             persistDocument(documentId, file.getOriginalFilename(), resolvedCategory, fingerprint);
+            categoryService.register(resolvedCategory);
             // 2. Chunk: split the document into overlapping segments to retain relevant context.
             List<Chunk> chunks = chunkService.chunk(documentId, extractedText);
             log.info("Chunked document {} into {} chunks", documentId, chunks.size());
-            // 3. Embed: batch OpenAI calls to reduce round-trips while preserving chunk order.
+            chunks.forEach(chunk -> chunk.setCategory(resolvedCategory));
+            // 3. Embed: chunks whose text is already stored in this category reuse that row's embedding;
+            // the rest go out in batched OpenAI calls, preserving chunk order.
+            int duplicates = vectorStoreService.resolveDuplicates(chunks, resolvedCategory);
+            List<Chunk> unique = chunks.stream().filter(chunk -> !chunk.isDuplicate()).toList();
+            log.info("Document {} has {} duplicate chunks; embedding {}", documentId, duplicates, unique.size());
             List<float[]> embeddings = embeddingService.embedBatch(
-                    chunks.stream().map(Chunk::getContent).toList());
-            for (int i = 0; i < chunks.size(); i++) {
-                chunks.get(i).setEmbedding(embeddings.get(i));
+                    unique.stream().map(Chunk::getContent).toList());
+            for (int i = 0; i < unique.size(); i++) {
+                unique.get(i).setEmbedding(embeddings.get(i));
             }
             // 4. Store: persist both textual content and embeddings in pgvector for future retrieval.
             int count = vectorStoreService.persistChunks(chunks);
             log.info("Uploaded document {} with {} chunks", documentId, count);
+            // A category that just crossed the size threshold gets its own partial ANN index in the background.
+            vectorIndexService.ensureCategoryIndexes();
             // Kick off KG ingestion for pending docs asynchronously.
             runKgIngestionAsync();
             return ResponseEntity.ok(new UploadResponse(documentId, count));
@@ -0,0 +1,79 @@
+package com.randy.rag.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.randy.rag.service.HalfvecMigrationJob;
+import com.randy.rag.service.VectorEvaluationService;
+import com.randy.rag.service.VectorIndexService;
+import com.randy.rag.service.VectorStoreService;
+
+@RestController
+@RequestMapping("/admin/index/vector")
+public class VectorIndexAdminController {
+
+    private final VectorIndexService vectorIndexService;
+    private final VectorEvaluationService vectorEvaluationService;
+    private final VectorStoreService vectorStoreService;
+    private final HalfvecMigrationJob halfvecMigrationJob;
+
+    public VectorIndexAdminController(VectorIndexService vectorIndexService,
+                                      VectorEvaluationService vectorEvaluationService,
+                                      VectorStoreService vectorStoreService,
+                                      HalfvecMigrationJob halfvecMigrationJob) {
+        this.vectorIndexService = vectorIndexService;
+        this.vectorEvaluationService = vectorEvaluationService;
+        this.vectorStoreService = vectorStoreService;
+        this.halfvecMigrationJob = halfvecMigrationJob;
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<VectorIndexService.BuildStatus> rebuild() {
+        return ResponseEntity.accepted().body(vectorIndexService.rebuild());
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return vectorIndexService.status();
+    }
+
+    @PostMapping("/backend/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildBackend() {
+        if (!vectorStoreService.rebuildActiveIndex()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(vectorStoreService.activeIndexStatus());
+        }
+        return ResponseEntity.accepted().body(vectorStoreService.activeIndexStatus());
+    }
+
+    @GetMapping("/backend")
+    public Map<String, Object> backendStatus() {
+        return vectorStoreService.activeIndexStatus();
+    }
+
+    @PostMapping("/storage/halfvec")
+    public ResponseEntity<HalfvecMigrationJob.MigrationStatus> migrateToHalfvec(@RequestParam(value = "swap", defaultValue = "true") boolean swap) {
+        return ResponseEntity.accepted().body(halfvecMigrationJob.start(swap));
+    }
+
+    @GetMapping("/storage")
+    public Map<String, Object> storageStatus() {
+        return halfvecMigrationJob.status();
+    }
+
+    @PostMapping("/evaluate")
+    public VectorEvaluationService.EvaluationReport evaluate(@RequestParam(value = "backend", defaultValue = "postgres") String backend,
+                                                             @RequestParam(value = "k", defaultValue = "10") int k,
+                                                             @RequestParam(value = "queries", defaultValue = "50") int queries,
+                                                             @RequestParam(value = "category", required = false) String category,
+                                                             @RequestParam(value = "oversample", required = false) List<Integer> oversample) {
+        return vectorEvaluationService.evaluate(backend, k, queries, category, oversample);
+    }
+}
@@ -0,0 +1,18 @@
+package com.randy.rag.model;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public record BatchQueryRequest(
+        @NotEmpty(message = "At least one query is required")
+        @Size(max = 1000, message = "A batch cannot exceed 1000 queries")
+        List<@Valid QueryRequest> queries,
+        Boolean generateAnswers) {
+
+    public boolean resolvedGenerateAnswers() {
+        return Boolean.TRUE.equals(generateAnswers);
+    }
+}
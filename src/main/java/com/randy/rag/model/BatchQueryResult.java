@@ -0,0 +1,23 @@
+package com.randy.rag.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One NDJSON line of a /query/batch response. Lines arrive in completion order; index is the query's position
+ * in the request. A failed query carries error instead of failing the whole batch.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchQueryResult(
+        int index,
+        String query,
+        List<QueryResponseSource> sources,
+        String answer,
+        String error) {
+
+    public static BatchQueryResult failed(int index, String query, Throwable error) {
+        return new BatchQueryResult(index, query, null, null,
+                error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage());
+    }
+}
@@ -20,6 +20,17 @@ public class Chunk {
 
     private String content;
 
+    // Copied from documents.category so category-filtered searches never join documents.
+    private String category;
+
+    // SHA-256 of content; chunks with the same text in the same category share one embedding row.
+    @Column("content_hash")
+    private byte[] contentHash;
+
+    // Set on duplicates: the chunk whose embedding this one reuses (its own embedding column stays NULL).
+    @Column("duplicate_of")
+    private UUID duplicateOf;
+
     private transient float[] embedding;
 
     public Chunk() {
@@ -69,6 +80,34 @@ public class Chunk {
         this.content = content;
     }
 
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public byte[] getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(byte[] contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public UUID getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(UUID duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
+    public boolean isDuplicate() {
+        return duplicateOf != null;
+    }
+
     public float[] getEmbedding() {
         return embedding;
     }
@@ -0,0 +1,9 @@
+package com.randy.rag.model;
+
+import java.util.UUID;
+
+/**
+ * Another document position holding the same chunk text as a search hit (see chunk deduplication).
+ */
+public record ChunkReference(UUID documentId, int chunkIndex) {
+}
@@ -1,5 +1,6 @@
 package com.randy.rag.model;
 
+import java.util.List;
 import java.util.UUID;
 
 public record ChunkSearchResult(
@@ -7,5 +8,18 @@ public record ChunkSearchResult(
         UUID documentId,
         int chunkIndex,
         String content,
-        double similarity) {
+        double similarity,
+        List<ChunkReference> duplicates) {
+
+    public ChunkSearchResult(UUID chunkId, UUID documentId, int chunkIndex, String content, double similarity) {
+        this(chunkId, documentId, chunkIndex, content, similarity, List.of());
+    }
+
+    public ChunkSearchResult withContent(String text) {
+        return new ChunkSearchResult(chunkId, documentId, chunkIndex, text, similarity, duplicates);
+    }
+
+    public ChunkSearchResult withDuplicates(List<ChunkReference> references) {
+        return new ChunkSearchResult(chunkId, documentId, chunkIndex, content, similarity, references);
+    }
 }
@@ -1,5 +1,7 @@
 package com.randy.rag.model;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -9,7 +11,15 @@ public record QueryRequest(
         @Min(value = 1, message = "topK must be at least 1")
         @Max(value = 20, message = "topK cannot exceed 20")
         Integer topK,
-        String category) {
+        String category,
+        SearchMode searchMode,
+        RetrievalMode retrieval,
+        @DecimalMin(value = "0.0", message = "mmrLambda must be between 0 and 1")
+        @DecimalMax(value = "1.0", message = "mmrLambda must be between 0 and 1")
+        Double mmrLambda,
+        @Min(value = 0, message = "contextWindow cannot be negative")
+        @Max(value = 5, message = "contextWindow cannot exceed 5")
+        Integer contextWindow) {
 
     public int resolvedTopK() {
         return topK == null ? 5 : topK;
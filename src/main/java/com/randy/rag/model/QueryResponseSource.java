@@ -1,4 +1,7 @@
 package com.randy.rag.model;
 
-public record QueryResponseSource(int chunkIndex, double similarity) {
+import java.util.List;
+import java.util.UUID;
+
+public record QueryResponseSource(int chunkIndex, double similarity, UUID documentId, List<ChunkReference> alsoIn) {
 }
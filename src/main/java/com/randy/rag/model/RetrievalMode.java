@@ -0,0 +1,28 @@
+package com.randy.rag.model;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Which retrievers feed the prompt. VECTOR is embedding similarity only; HYBRID also runs a full-text query over
+ * chunk content and fuses both rankings, so exact names and codes surface without raising topK.
+ */
+public enum RetrievalMode {
+    VECTOR,
+    HYBRID;
+
+    @JsonCreator
+    public static RetrievalMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return RetrievalMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @JsonValue
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,29 @@
+package com.randy.rag.model;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Recall/latency trade-off for a single vector search.
+ * FAST favors latency (small ANN beam), BALANCED is the interactive default, EXACT bypasses the ANN index.
+ */
+public enum SearchMode {
+    FAST,
+    BALANCED,
+    EXACT;
+
+    @JsonCreator
+    public static SearchMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return SearchMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @JsonValue
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,120 @@
+package com.randy.rag.service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.model.BatchQueryRequest;
+import com.randy.rag.model.BatchQueryResult;
+import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.model.QueryRequest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Serves /query/batch: all queries are embedded in one embedBatch call, searched concurrently on a bounded pool
+ * (sized below the JDBC connection pool), optionally answered with a separate concurrency limit, and emitted as
+ * each one completes.
+ */
+@Service
+public class BatchQueryService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchQueryService.class);
+
+    private final EmbeddingService embeddingService;
+    private final QueryService queryService;
+    private final MeterRegistry meterRegistry;
+    private final int searchThreads;
+    private final int answerConcurrency;
+    private final ExecutorService searchExecutor;
+    private final Scheduler searchScheduler;
+
+    public BatchQueryService(EmbeddingService embeddingService,
+                             QueryService queryService,
+                             MeterRegistry meterRegistry,
+                             @Value("${rag.batch.search-threads:8}") int searchThreads,
+                             @Value("${rag.batch.answer-concurrency:4}") int answerConcurrency) {
+        this.embeddingService = embeddingService;
+        this.queryService = queryService;
+        this.meterRegistry = meterRegistry;
+        this.searchThreads = Math.max(1, searchThreads);
+        this.answerConcurrency = Math.max(1, answerConcurrency);
+        this.searchExecutor = Executors.newFixedThreadPool(this.searchThreads, r -> {
+            Thread thread = new Thread(r, "batch-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.searchScheduler = Schedulers.fromExecutorService(searchExecutor);
+    }
+
+    /**
+     * Embeds every query before returning, so an embedding failure surfaces as a normal error response
+     * rather than a truncated stream.
+     */
+    public Flux<BatchQueryResult> run(BatchQueryRequest request) {
+        List<QueryRequest> queries = request.queries();
+        Timer.Sample embedSample = Timer.start(meterRegistry);
+        List<float[]> embeddings = embeddingService.embedBatch(queries.stream().map(QueryRequest::query).toList());
+        embedSample.stop(meterRegistry.timer("rag.batch.embed"));
+        meterRegistry.summary("rag.batch.size").record(queries.size());
+        log.info("Batch of {} queries embedded (answers={})", queries.size(), request.resolvedGenerateAnswers());
+
+        Flux<Retrieved> retrieved = Flux.range(0, queries.size())
+                .flatMap(index -> Mono.fromCallable(() -> retrieve(index, queries.get(index), embeddings.get(index)))
+                        .subscribeOn(searchScheduler), searchThreads);
+        if (!request.resolvedGenerateAnswers()) {
+            return retrieved.map(Retrieved::result);
+        }
+        // Chat completions block on the HTTP call, so they run on boundedElastic with their own limit.
+        return retrieved.flatMap(item -> Mono.fromCallable(() -> answer(item))
+                .subscribeOn(Schedulers.boundedElastic()), answerConcurrency);
+    }
+
+    private Retrieved retrieve(int index, QueryRequest query, float[] embedding) {
+        try {
+            long corpusVersion = queryService.corpusVersion();
+            List<ChunkSearchResult> matches = meterRegistry.timer("rag.batch.search")
+                    .recordCallable(() -> queryService.retrieve(query, embedding));
+            return new Retrieved(index, query, embedding, matches, corpusVersion,
+                    new BatchQueryResult(index, query.query(), QueryService.sources(matches), null, null));
+        } catch (Exception e) {
+            log.warn("Batch query {} failed during retrieval: {}", index, e.getMessage());
+            return new Retrieved(index, query, embedding, null, 0, BatchQueryResult.failed(index, query.query(), e));
+        }
+    }
+
+    private BatchQueryResult answer(Retrieved item) {
+        if (item.matches() == null) {
+            return item.result();
+        }
+        try {
+            String answer = queryService.answer(item.query(), item.embedding(), item.matches(),
+                    item.corpusVersion()).answer();
+            return new BatchQueryResult(item.index(), item.query().query(), item.result().sources(), answer, null);
+        } catch (Exception e) {
+            log.warn("Batch query {} failed during answer generation: {}", item.index(), e.getMessage());
+            return BatchQueryResult.failed(item.index(), item.query().query(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchScheduler.dispose();
+        searchExecutor.shutdownNow();
+    }
+
+    private record Retrieved(int index, QueryRequest query, float[] embedding, List<ChunkSearchResult> matches,
+                             long corpusVersion, BatchQueryResult result) {
+    }
+}
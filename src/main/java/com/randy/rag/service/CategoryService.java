@@ -0,0 +1,33 @@
+package com.randy.rag.service;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Owns the categories table: every category a document is stored under is registered here at upload time,
+ * so listing categories never scans documents.
+ */
+@Service
+public class CategoryService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CategoryService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void register(String category) {
+        if (category == null || category.isBlank()) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES (?) ON CONFLICT (name) DO NOTHING", category);
+    }
+
+    @Transactional(readOnly = true)
+    public List<String> list() {
+        return jdbcTemplate.query("SELECT name FROM categories ORDER BY name", (rs, rowNum) -> rs.getString(1));
+    }
+}
@@ -0,0 +1,174 @@
+package com.randy.rag.service;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * One-shot data backfills for columns added to existing chunks tables, run in the background after startup
+ * instead of as table-wide UPDATEs in the schema scripts (which spring.sql.init and every shard would repeat on each
+ * start). Each backfill walks the primary key in small auto-commit batches, like HalfvecMigrationJob, and is
+ * recorded per shard in schema_migrations once it has finished, so later starts only do a primary-key lookup.
+ */
+@Service
+public class ChunkBackfillJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkBackfillJob.class);
+
+    static final String CONTENT_HASH = "chunks.content_hash";
+    static final String CHUNK_CATEGORY = "chunks.category";
+    static final String CATEGORIES = "categories";
+
+    private final ShardRouter shardRouter;
+    private final int batchSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chunk-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChunkBackfillJob(ShardRouter shardRouter,
+                            @Value("${rag.backfill.batch-size:1000}") int batchSize) {
+        this.shardRouter = shardRouter;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runPending() {
+        executor.submit(() -> {
+            for (Shard shard : shardRouter.shards()) {
+                runOnce(shard, CONTENT_HASH, this::backfillContentHash);
+                runOnce(shard, CHUNK_CATEGORY, this::backfillCategory);
+            }
+            runOnce(shardRouter.primary(), CATEGORIES, this::seedCategories);
+        });
+    }
+
+    private void runOnce(Shard shard, String name, Consumer<Shard> backfill) {
+        try {
+            JdbcTemplate jdbc = shard.jdbcTemplate();
+            Integer done = jdbc.queryForObject("SELECT COUNT(1) FROM schema_migrations WHERE name = ?", Integer.class, name);
+            if (done != null && done > 0) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            log.info("Backfilling {} on {}", name, shard.name());
+            backfill.accept(shard);
+            jdbc.update("INSERT INTO schema_migrations (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+            log.info("Backfilled {} on {} in {} ms", name, shard.name(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Left unrecorded, so the next start picks it up again; rows already done are skipped.
+            log.error("Backfill of {} on {} failed: {}", name, shard.name(), e.getMessage());
+        }
+    }
+
+    /**
+     * Dedup lookups (VectorStoreService) match on content_hash; rows stored before the column existed get theirs
+     * here. Until then they are simply never picked as canonical.
+     */
+    private void backfillContentHash(Shard shard) {
+        forEachBatch(shard, (jdbc, ids) -> jdbc.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("UPDATE chunks SET content_hash = sha256(convert_to(content, 'UTF8')) "
+                    + "WHERE id = ANY(?) AND content_hash IS NULL");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }));
+    }
+
+    /**
+     * Copies documents.category onto chunks stored before the column existed. Documents live on the primary, so
+     * each batch looks up the categories of its documents there and updates the shard one category at a time.
+     */
+    private void backfillCategory(Shard shard) {
+        JdbcTemplate documents = shardRouter.primary().jdbcTemplate();
+        forEachBatch(shard, (jdbc, ids) -> {
+            Map<UUID, List<UUID>> chunksByDocument = new HashMap<>();
+            jdbc.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("SELECT id, document_id FROM chunks "
+                        + "WHERE id = ANY(?) AND category IS NULL");
+                ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+                return ps;
+            }, rs -> {
+                chunksByDocument.computeIfAbsent((UUID) rs.getObject("document_id"), id -> new ArrayList<>())
+                        .add((UUID) rs.getObject("id"));
+            });
+            if (chunksByDocument.isEmpty()) {
+                return;
+            }
+            Map<String, List<UUID>> chunksByCategory = new HashMap<>();
+            documents.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("SELECT id, category FROM documents "
+                        + "WHERE id = ANY(?) AND category IS NOT NULL");
+                ps.setArray(1, connection.createArrayOf("uuid", chunksByDocument.keySet().toArray()));
+                return ps;
+            }, rs -> {
+                chunksByCategory.computeIfAbsent(rs.getString("category"), category -> new ArrayList<>())
+                        .addAll(chunksByDocument.get((UUID) rs.getObject("id")));
+            });
+            chunksByCategory.forEach((category, chunkIds) -> jdbc.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement("UPDATE chunks SET category = ? "
+                        + "WHERE id = ANY(?) AND category IS NULL");
+                ps.setString(1, category);
+                ps.setArray(2, connection.createArrayOf("uuid", chunkIds.toArray()));
+                return ps;
+            }));
+        });
+    }
+
+    /**
+     * Seeds the categories table from documents uploaded before CategoryService maintained it. One scan of
+     * documents, once; afterwards categories are added as documents arrive.
+     */
+    private void seedCategories(Shard primary) {
+        primary.jdbcTemplate().update("INSERT INTO categories (name) "
+                + "SELECT DISTINCT category FROM documents WHERE category IS NOT NULL AND category <> '' "
+                + "ON CONFLICT (name) DO NOTHING");
+    }
+
+    /**
+     * Keyset walk over the primary key; each batch is its own short auto-commit statement.
+     */
+    private void forEachBatch(Shard shard, Batch batch) {
+        JdbcTemplate jdbc = shard.jdbcTemplate();
+        UUID after = null;
+        while (true) {
+            List<UUID> ids = after == null
+                    ? jdbc.queryForList("SELECT id FROM chunks ORDER BY id LIMIT ?", UUID.class, batchSize)
+                    : jdbc.queryForList("SELECT id FROM chunks WHERE id > ? ORDER BY id LIMIT ?", UUID.class, after, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            after = ids.get(ids.size() - 1);
+            batch.apply(jdbc, ids);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Batch {
+        void apply(JdbcTemplate jdbc, List<UUID> ids);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.randy.rag.service;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.service.cache.BoundedCache;
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Second phase of retrieval: loads chunk text for an already-ranked set of ids. Hot chunks are served from an
+ * LRU cache (chunk text never changes once written) and the rest come from one WHERE id = ANY(?) query per shard.
+ * Ids a read replica does not have yet are retried on the primary.
+ */
+@Service
+public class ChunkContentStore {
+
+    private final ShardRouter shardRouter;
+    private final BoundedCache<UUID, String> cache;
+    private final DistributionSummary fetchedRows;
+
+    public ChunkContentStore(ShardRouter shardRouter,
+                             MeterRegistry meterRegistry,
+                             @Value("${rag.content-cache.enabled:true}") boolean cacheEnabled,
+                             @Value("${rag.content-cache.max-bytes:33554432}") long cacheMaxBytes,
+                             @Value("${rag.content-cache.ttl-seconds:3600}") long cacheTtlSeconds) {
+        this.shardRouter = shardRouter;
+        this.cache = cacheEnabled
+                ? new BoundedCache<>("chunk-content", cacheMaxBytes, Duration.ofSeconds(cacheTtlSeconds),
+                        content -> 56 + 2L * content.length(), meterRegistry)
+                : null;
+        this.fetchedRows = DistributionSummary.builder("rag.content.fetch.rows")
+                .baseUnit("rows")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Content by chunk id; ids that no longer exist are absent from the map.
+     */
+    public Map<UUID, String> load(Collection<UUID> chunkIds) {
+        Map<UUID, String> contents = new HashMap<>(chunkIds.size() * 2);
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : chunkIds) {
+            String cached = cache == null ? null : cache.get(id);
+            if (cached != null) {
+                contents.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return contents;
+        }
+        fetchedRows.record(missing.size());
+        // Read-only, so the primary shard serves it from a read replica when one is configured.
+        shardRouter.gather("content", shard -> shard.readOnlyTransaction().execute(status -> query(shard, missing)))
+                .forEach(rows -> remember(rows, contents));
+        List<UUID> unresolved = missing.stream().filter(id -> !contents.containsKey(id)).toList();
+        if (!unresolved.isEmpty()) {
+            // A replica within its lag budget can still miss chunks committed moments ago (a search right after an
+            // upload); outside a read-only transaction the primary shard answers from the primary itself.
+            remember(query(shardRouter.primary(), unresolved), contents);
+        }
+        return contents;
+    }
+
+    private static List<Map.Entry<UUID, String>> query(Shard shard, List<UUID> ids) {
+        return shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id, content FROM chunks WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }, (rs, rowNum) -> Map.entry((UUID) rs.getObject("id"), rs.getString("content")));
+    }
+
+    private void remember(List<Map.Entry<UUID, String>> rows, Map<UUID, String> contents) {
+        for (Map.Entry<UUID, String> row : rows) {
+            contents.put(row.getKey(), row.getValue());
+            if (cache != null && row.getValue() != null) {
+                cache.put(row.getKey(), row.getValue());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+}
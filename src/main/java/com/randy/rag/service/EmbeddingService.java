@@ -2,7 +2,10 @@ package com.randy.rag.service;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,10 +15,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.randy.rag.service.cache.EmbeddingCache;
+
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 public class EmbeddingService {
@@ -25,17 +32,23 @@ public class EmbeddingService {
     private final WebClient openAiWebClient;
     private final String embeddingModel;
     private final int batchSize;
+    private final int concurrency;
     private final MeterRegistry meterRegistry;
     private final Timer embeddingTimer;
     private final Counter embeddingErrors;
+    private final EmbeddingCache embeddingCache;
 
     public EmbeddingService(WebClient openAiWebClient,
                             @Value("${openai.embedding-model}") String embeddingModel,
                             @Value("${openai.embedding.batch-size:16}") int batchSize,
-                            MeterRegistry meterRegistry) {
+                            @Value("${openai.embedding.concurrency:4}") int concurrency,
+                            MeterRegistry meterRegistry,
+                            EmbeddingCache embeddingCache) {
         this.openAiWebClient = openAiWebClient;
+        this.embeddingCache = embeddingCache;
         this.embeddingModel = embeddingModel;
         this.batchSize = batchSize > 0 ? batchSize : 1;
+        this.concurrency = concurrency > 0 ? concurrency : 1;
         this.meterRegistry = meterRegistry;
         this.embeddingTimer = meterRegistry.timer("rag.embedding.duration");
         this.embeddingErrors = meterRegistry.counter("rag.embedding.errors");
@@ -50,77 +63,118 @@ public class EmbeddingService {
         if (texts == null || texts.isEmpty()) {
             return List.of();
         }
+        return embedBatchAsync(texts).block();
+    }
 
-        List<float[]> results = new ArrayList<>(Collections.nCopies(texts.size(), null));
-        List<String> pendingBatch = new ArrayList<>(batchSize);
-        List<Integer> pendingIndexes = new ArrayList<>(batchSize);
+    /**
+     * Embeds texts in API batches of openai.embedding.batch-size, keeping up to openai.embedding.concurrency
+     * requests in flight. Results come back in input order; cancelling the subscription cancels in-flight requests.
+     */
+    public Mono<List<float[]>> embedBatchAsync(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        // Cache lookups may read the on-disk log, so keep them (and the writes below) off the event loop.
+        return Mono.fromCallable(() -> lookup(texts))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(pending -> {
+                    List<String> misses = new ArrayList<>(pending.misses().keySet());
+                    List<List<String>> batches = new ArrayList<>();
+                    for (int from = 0; from < misses.size(); from += batchSize) {
+                        batches.add(misses.subList(from, Math.min(from + batchSize, misses.size())));
+                    }
+                    // flatMapSequential subscribes to several batches at once but emits them in submission order.
+                    return Flux.fromIterable(batches)
+                            .flatMapSequential(batch -> callEmbeddingApi(batch).map(vectors -> Map.entry(batch, vectors)),
+                                    concurrency)
+                            .publishOn(Schedulers.boundedElastic())
+                            .doOnNext(result -> fill(pending, result.getKey(), result.getValue()))
+                            .then(Mono.fromSupplier(pending::results));
+                });
+    }
 
+    private PendingEmbeddings lookup(List<String> texts) {
+        PendingEmbeddings pending = new PendingEmbeddings(new ArrayList<>(Collections.nCopies(texts.size(), null)),
+                new LinkedHashMap<>(), new HashMap<>());
+        // Cache hits are filled in directly; identical texts within the call are sent to the API once.
         for (int i = 0; i < texts.size(); i++) {
             String text = texts.get(i);
             if (text == null || text.isBlank()) {
-                results.set(i, new float[0]);
+                pending.results().set(i, new float[0]);
                 continue;
             }
-            pendingBatch.add(text);
-            pendingIndexes.add(i);
-            if (pendingBatch.size() == batchSize) {
-                log.debug("Embedding batch of size {}", batchSize);
-                assignBatch(results, pendingBatch, pendingIndexes);
-                pendingBatch.clear();
-                pendingIndexes.clear();
+            if (embeddingCache.isEnabled() && !pending.misses().containsKey(text)) {
+                EmbeddingCache.Key key = pending.keys().computeIfAbsent(text, t -> embeddingCache.key(embeddingModel, t));
+                float[] cached = embeddingCache.get(key);
+                if (cached != null) {
+                    pending.results().set(i, cached);
+                    continue;
+                }
             }
+            pending.misses().computeIfAbsent(text, t -> new ArrayList<>()).add(i);
         }
-
-        if (!pendingBatch.isEmpty()) {
-            assignBatch(results, pendingBatch, pendingIndexes);
-        }
-
-        return results;
+        return pending;
     }
 
-    private void assignBatch(List<float[]> results, List<String> batchInputs, List<Integer> batchIndexes) {
-        List<float[]> vectors = callEmbeddingApi(batchInputs);
-        for (int i = 0; i < batchIndexes.size(); i++) {
-            results.set(batchIndexes.get(i), vectors.get(i));
+    private void fill(PendingEmbeddings pending, List<String> batch, List<float[]> vectors) {
+        for (int i = 0; i < batch.size(); i++) {
+            float[] vector = vectors.get(i);
+            pending.misses().get(batch.get(i)).forEach(index -> pending.results().set(index, vector));
+            if (embeddingCache.isEnabled()) {
+                embeddingCache.put(pending.keys().get(batch.get(i)), vector);
+            }
         }
     }
 
-    private List<float[]> callEmbeddingApi(List<String> inputs) {
+    private Mono<List<float[]>> callEmbeddingApi(List<String> inputs) {
         EmbeddingRequest request = new EmbeddingRequest(embeddingModel, inputs);
-        Timer.Sample sample = Timer.start(meterRegistry);
-        try {
-            EmbeddingResponse response = openAiWebClient.post()
+        return Mono.defer(() -> {
+            log.debug("Embedding batch of size {}", inputs.size());
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return openAiWebClient.post()
                     .uri("/embeddings")
                     .bodyValue(request)
                     .retrieve()
                     .bodyToMono(EmbeddingResponse.class)
                     .onErrorResume(WebClientResponseException.class, ex -> Mono.error(new OpenAiException((HttpStatus) ex.getStatusCode(), ex.getResponseBodyAsString())))
-                    .block();
-
-            if (response == null || response.data == null || response.data.isEmpty()) {
-                throw new OpenAiException(HttpStatus.INTERNAL_SERVER_ERROR, "OpenAI returned empty embedding data");
-            }
-            if (response.data.size() != inputs.size()) {
-                throw new OpenAiException(HttpStatus.INTERNAL_SERVER_ERROR, "OpenAI returned mismatched embedding count");
-            }
+                    .switchIfEmpty(Mono.error(() -> new OpenAiException(HttpStatus.INTERNAL_SERVER_ERROR, "OpenAI returned empty embedding data")))
+                    .map(response -> {
+                        List<float[]> vectors = toVectors(response, inputs.size());
+                        log.info("Received embeddings for batch size {}", inputs.size());
+                        sample.stop(embeddingTimer);
+                        return vectors;
+                    })
+                    .doOnError(OpenAiException.class, e -> {
+                        embeddingErrors.increment();
+                        log.error("OpenAI embedding request failed: {}", e.getMessage());
+                    });
+        });
+    }
 
-            List<float[]> vectors = new ArrayList<>(inputs.size());
-            for (EmbeddingData data : response.data) {
-                List<Double> embedding = data.embedding();
-                float[] vector = new float[embedding.size()];
-                for (int i = 0; i < embedding.size(); i++) {
-                    vector[i] = embedding.get(i).floatValue();
-                }
-                vectors.add(vector);
+    private static List<float[]> toVectors(EmbeddingResponse response, int expected) {
+        if (response.data == null || response.data.isEmpty()) {
+            throw new OpenAiException(HttpStatus.INTERNAL_SERVER_ERROR, "OpenAI returned empty embedding data");
+        }
+        if (response.data.size() != expected) {
+            throw new OpenAiException(HttpStatus.INTERNAL_SERVER_ERROR, "OpenAI returned mismatched embedding count");
+        }
+        List<float[]> vectors = new ArrayList<>(expected);
+        for (EmbeddingData data : response.data) {
+            List<Double> embedding = data.embedding();
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < embedding.size(); i++) {
+                vector[i] = embedding.get(i).floatValue();
             }
-            log.info("Received embeddings for batch size {}", inputs.size());
-            sample.stop(embeddingTimer);
-            return vectors;
-        } catch (OpenAiException e) {
-            embeddingErrors.increment();
-            log.error("OpenAI embedding request failed: {}", e.getMessage());
-            throw e;
+            vectors.add(vector);
         }
+        return vectors;
+    }
+
+    /**
+     * Per-call state: result slots, texts still to embed (with every slot they fill) and their cache keys.
+     */
+    private record PendingEmbeddings(List<float[]> results, Map<String, List<Integer>> misses,
+                                     Map<String, EmbeddingCache.Key> keys) {
     }
 
     private record EmbeddingRequest(String model, List<String> input) {
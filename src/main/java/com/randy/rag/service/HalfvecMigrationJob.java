@@ -0,0 +1,303 @@
+package com.randy.rag.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+import com.randy.rag.service.vector.VectorStorage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * One-shot online conversion of chunks.embedding from vector (float32) to halfvec, shard by shard: a shadow
+ * halfvec column is kept in sync by a trigger, backfilled in primary-key order in small batches, indexed
+ * concurrently and finally swapped in under a short ACCESS EXCLUSIVE lock. Every DDL step runs under lock_timeout
+ * and is retried, and the job holds VectorIndexService's DDL lock so no index build overlaps it. Runs at startup when
+ * vector.storage=halfvec and a shard still stores float32, or on demand from the admin endpoint.
+ * With swap=false the job stops once the shadow column is indexed, so /admin/index/vector/evaluate can compare
+ * both layouts on the same rows before committing to the switch.
+ */
+@Service
+public class HalfvecMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(HalfvecMigrationJob.class);
+
+    static final String SHADOW_COLUMN = "embedding_half";
+    private static final String SHADOW_INDEX = VectorIndexService.INDEX_NAME + "_half";
+    private static final String SYNC_TRIGGER = "chunks_embedding_half_sync";
+    private static final String LOCK_TIMEOUT = "5s";
+    private static final int LOCK_ATTEMPTS = 5;
+    private static final long LOCK_RETRY_DELAY_MILLIS = 2000;
+    // SQLSTATE raised when lock_timeout expires.
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+    private static final long INDEX_BUILD_WAIT_SECONDS = 30;
+
+    private final ShardRouter shardRouter;
+    private final VectorStorage vectorStorage;
+    private final VectorIndexService vectorIndexService;
+    private final int batchSize;
+    private final Counter migratedRows;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "halfvec-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<MigrationStatus> lastRun = new AtomicReference<>(MigrationStatus.idle());
+    private final AtomicLong copied = new AtomicLong();
+
+    public HalfvecMigrationJob(ShardRouter shardRouter,
+                               VectorStorage vectorStorage,
+                               VectorIndexService vectorIndexService,
+                               MeterRegistry meterRegistry,
+                               @Value("${vector.storage.migration.batch-size:1000}") int batchSize) {
+        this.shardRouter = shardRouter;
+        this.vectorStorage = vectorStorage;
+        this.vectorIndexService = vectorIndexService;
+        this.batchSize = Math.max(1, batchSize);
+        this.migratedRows = meterRegistry.counter("rag.vector.storage.migrated.rows");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateIfConfigured() {
+        if (!VectorStorage.HALFVEC.equals(vectorStorage.configuredType())) {
+            return;
+        }
+        try {
+            if (!vectorStorage.isHalfvecEverywhere()) {
+                log.info("vector.storage=halfvec but chunks.embedding is still float32; migrating in background");
+                start(true);
+            }
+        } catch (Exception e) {
+            log.warn("Unable to check chunks.embedding storage type: {}", e.getMessage());
+        }
+    }
+
+    public synchronized MigrationStatus start(boolean swap) {
+        MigrationStatus current = lastRun.get();
+        if ("RUNNING".equals(current.state())) {
+            return current;
+        }
+        copied.set(0);
+        MigrationStatus running = new MigrationStatus("RUNNING", swap, LocalDateTime.now(), null, null);
+        lastRun.set(running);
+        executor.submit(() -> run(running, swap));
+        return running;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("configured", vectorStorage.configuredType());
+        Map<String, Object> shards = new LinkedHashMap<>();
+        for (Shard shard : shardRouter.shards()) {
+            vectorStorage.refresh(shard);
+            shards.put(shard.name(), Map.of("embedding", vectorStorage.typeOf(shard),
+                    "shadow", VectorStorage.columnType(shard, SHADOW_COLUMN) != null));
+        }
+        status.put("shards", shards);
+        status.put("lastRun", lastRun.get());
+        status.put("rowsCopied", copied.get());
+        return status;
+    }
+
+    /**
+     * True once every shard has an indexed shadow column, i.e. a swap=false run has completed.
+     */
+    public boolean isShadowReady() {
+        return shardRouter.shards().stream().allMatch(shard -> VectorStorage.columnType(shard, SHADOW_COLUMN) != null
+                && Boolean.TRUE.equals(indexValid(shard.jdbcTemplate(), SHADOW_INDEX)));
+    }
+
+    private void run(MigrationStatus running, boolean swap) {
+        try {
+            if (!vectorIndexService.tryLockForMigration(INDEX_BUILD_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Skipping halfvec migration: a vector index build is running");
+                lastRun.set(running.finish("SKIPPED", "vector index build in progress; start the migration again "
+                        + "once it has finished"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lastRun.set(running.finish("FAILED", "interrupted"));
+            return;
+        }
+        try {
+            try {
+                for (Shard shard : shardRouter.shards()) {
+                    vectorStorage.refresh(shard);
+                    if (VectorStorage.HALFVEC.equals(vectorStorage.typeOf(shard))) {
+                        continue;
+                    }
+                    prepare(shard);
+                    if (swap) {
+                        swap(shard);
+                        vectorStorage.refresh(shard);
+                    }
+                }
+            } finally {
+                // Released before ensureIndex() so the builds it queues are not turned away.
+                vectorIndexService.unlockAfterMigration();
+            }
+            if (swap) {
+                // The swap dropped the prefix and per-category indexes along with the old column.
+                vectorIndexService.ensureIndex();
+            }
+            lastRun.set(running.finish(swap ? "COMPLETED" : "PREPARED", null));
+            log.info("halfvec migration {}", swap ? "completed" : "prepared; shadow column ready for evaluation");
+        } catch (Exception e) {
+            log.error("halfvec migration failed: {}", e.getMessage());
+            lastRun.set(running.finish("FAILED", e.getMessage()));
+        }
+    }
+
+    private void prepare(Shard shard) {
+        JdbcTemplate jdbc = shard.jdbcTemplate();
+        Integer dimensions = jdbc.queryForObject("SELECT atttypmod FROM pg_attribute "
+                + "WHERE attrelid = 'chunks'::regclass AND attname = 'embedding' AND NOT attisdropped", Integer.class);
+        String columnType = dimensions != null && dimensions > 0 ? "halfvec(" + dimensions + ")" : "halfvec";
+        log.info("Preparing {} column on {}", columnType, shard.name());
+        executeWithLockTimeout(shard, "Adding the halfvec shadow column", List.of(
+                // No default, so adding the column is a catalog-only change.
+                "ALTER TABLE chunks ADD COLUMN IF NOT EXISTS " + SHADOW_COLUMN + " " + columnType,
+                // Writes from here on fill the shadow column themselves; the backfill only has to cover older rows.
+                "CREATE OR REPLACE FUNCTION " + SYNC_TRIGGER + "() RETURNS trigger LANGUAGE plpgsql AS $$ "
+                        + "BEGIN NEW." + SHADOW_COLUMN + " := NEW.embedding::halfvec; RETURN NEW; END $$",
+                "DROP TRIGGER IF EXISTS " + SYNC_TRIGGER + " ON chunks",
+                "CREATE TRIGGER " + SYNC_TRIGGER + " BEFORE INSERT OR UPDATE OF embedding ON chunks "
+                        + "FOR EACH ROW EXECUTE FUNCTION " + SYNC_TRIGGER + "()"));
+        backfill(shard);
+
+        Boolean valid = indexValid(jdbc, SHADOW_INDEX);
+        if (Boolean.TRUE.equals(valid)) {
+            return;
+        }
+        if (valid != null) {
+            // Left INVALID by an interrupted concurrent build.
+            jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS " + SHADOW_INDEX);
+        }
+        log.info("Building {} on {}", SHADOW_INDEX, shard.name());
+        vectorIndexService.buildIndex(shard, SHADOW_INDEX, SHADOW_COLUMN, VectorStorage.HALFVEC);
+    }
+
+    /**
+     * Keyset walk over the primary key; every batch is its own short auto-commit UPDATE so row locks are held
+     * briefly and vacuum can keep up. Rows already copied by an earlier run or by the trigger are skipped.
+     */
+    private void backfill(Shard shard) {
+        JdbcTemplate jdbc = shard.jdbcTemplate();
+        UUID after = null;
+        while (true) {
+            List<UUID> ids = after == null
+                    ? jdbc.queryForList("SELECT id FROM chunks ORDER BY id LIMIT ?", UUID.class, batchSize)
+                    : jdbc.queryForList("SELECT id FROM chunks WHERE id > ? ORDER BY id LIMIT ?", UUID.class, after, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            after = ids.get(ids.size() - 1);
+            int updated = jdbc.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement("UPDATE chunks SET " + SHADOW_COLUMN + " = embedding::halfvec "
+                        + "WHERE id = ANY(?) AND embedding IS NOT NULL AND " + SHADOW_COLUMN + " IS NULL");
+                ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+                return ps;
+            });
+            migratedRows.increment(updated);
+            copied.addAndGet(updated);
+        }
+    }
+
+    private void swap(Shard shard) {
+        log.info("Swapping chunks.embedding to halfvec on {}", shard.name());
+        executeWithLockTimeout(shard, "The halfvec swap", List.of(
+                "LOCK TABLE chunks IN ACCESS EXCLUSIVE MODE",
+                "DROP TRIGGER IF EXISTS " + SYNC_TRIGGER + " ON chunks",
+                "DROP FUNCTION IF EXISTS " + SYNC_TRIGGER + "()",
+                // Dropping the column also drops every index on it; its space is reclaimed as rows are rewritten.
+                "ALTER TABLE chunks DROP COLUMN embedding",
+                "ALTER TABLE chunks RENAME COLUMN " + SHADOW_COLUMN + " TO embedding",
+                "ALTER INDEX IF EXISTS " + SHADOW_INDEX + " RENAME TO " + VectorIndexService.INDEX_NAME));
+    }
+
+    /**
+     * Runs the statements in one transaction under lock_timeout. ALTER TABLE and CREATE TRIGGER wait for an
+     * exclusive lock on chunks, and a waiting lock request queues every later search behind it; giving up after a
+     * few seconds and retrying keeps a long-running reader from stalling the whole table.
+     */
+    private void executeWithLockTimeout(Shard shard, String what, List<String> statements) {
+        shard.jdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        statement.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+                        for (String sql : statements) {
+                            statement.execute(sql);
+                        }
+                        connection.commit();
+                        return null;
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        if (!LOCK_NOT_AVAILABLE.equals(e.getSQLState()) || attempt >= LOCK_ATTEMPTS) {
+                            throw e;
+                        }
+                        log.info("{} on {} could not get its lock (attempt {}); retrying", what, shard.name(), attempt);
+                        Thread.sleep(LOCK_RETRY_DELAY_MILLIS * attempt);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted during halfvec migration on " + shard.name(), e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Validity of the named index, or null when it does not exist.
+     */
+    private static Boolean indexValid(JdbcTemplate jdbc, String name) {
+        List<Boolean> valid = jdbc.queryForList("SELECT i.indisvalid FROM pg_index i "
+                + "JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?", Boolean.class, name);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public record MigrationStatus(String state, boolean swap, LocalDateTime startedAt, LocalDateTime completedAt,
+                                  String error) {
+
+        static MigrationStatus idle() {
+            return new MigrationStatus("IDLE", false, null, null, null);
+        }
+
+        MigrationStatus finish(String state, String error) {
+            return new MigrationStatus(state, swap, startedAt, LocalDateTime.now(), error);
+        }
+    }
+}
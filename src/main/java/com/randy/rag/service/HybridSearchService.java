@@ -0,0 +1,124 @@
+package com.randy.rag.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.model.SearchMode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the full-text and vector retrievers in parallel and merges them with reciprocal rank fusion:
+ * score(chunk) = sum over legs of 1 / (k + rank). Ranks are used instead of raw scores because ts_rank and
+ * L2 distance live on unrelated scales.
+ */
+@Service
+public class HybridSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridSearchService.class);
+
+    private final VectorStoreService vectorStoreService;
+    private final LexicalSearchService lexicalSearchService;
+    private final MeterRegistry meterRegistry;
+    private final int rrfK;
+    private final int candidatesPerLeg;
+    private final ExecutorService lexicalExecutor;
+
+    public HybridSearchService(VectorStoreService vectorStoreService,
+                               LexicalSearchService lexicalSearchService,
+                               MeterRegistry meterRegistry,
+                               @Value("${rag.hybrid.rrf-k:60}") int rrfK,
+                               @Value("${rag.hybrid.candidates:20}") int candidatesPerLeg,
+                               @Value("${rag.hybrid.threads:8}") int threads) {
+        this.vectorStoreService = vectorStoreService;
+        this.lexicalSearchService = lexicalSearchService;
+        this.meterRegistry = meterRegistry;
+        this.rrfK = Math.max(1, rrfK);
+        this.candidatesPerLeg = Math.max(1, candidatesPerLeg);
+        this.lexicalExecutor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "hybrid-lexical");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<ChunkSearchResult> search(String queryText, float[] queryEmbedding, int topK, String category,
+                                          SearchMode mode) {
+        // Both legs return ids and scores only; text is fetched for the fused top-k alone.
+        return vectorStoreService.withContent(searchCandidates(queryText, queryEmbedding, topK, category, mode));
+    }
+
+    /**
+     * Fused ranking without chunk text; see {@link VectorStoreService#withContent(List)}.
+     */
+    public List<ChunkSearchResult> searchCandidates(String queryText, float[] queryEmbedding, int topK, String category,
+                                                    SearchMode mode) {
+        Timer.Sample total = Timer.start(meterRegistry);
+        int depth = Math.max(topK, candidatesPerLeg);
+        // JDBC blocks, so the lexical leg gets its own pool and the vector leg runs on the caller thread.
+        CompletableFuture<List<ChunkSearchResult>> lexical = CompletableFuture.supplyAsync(
+                () -> timed("lexical", () -> lexicalSearchService.search(queryText, depth, category)), lexicalExecutor);
+        List<ChunkSearchResult> vector = timed("vector",
+                () -> vectorStoreService.searchCandidates(queryEmbedding, depth, category, mode));
+        List<ChunkSearchResult> lexicalHits;
+        try {
+            lexicalHits = lexical.join();
+        } catch (CompletionException e) {
+            log.warn("Lexical leg failed, using vector results only: {}", e.getCause().getMessage());
+            lexicalHits = List.of();
+        }
+        List<ChunkSearchResult> fused = fuse(List.of(vector, lexicalHits), topK);
+        total.stop(meterRegistry.timer("rag.search.hybrid"));
+        return fused;
+    }
+
+    List<ChunkSearchResult> fuse(List<List<ChunkSearchResult>> rankings, int topK) {
+        Map<UUID, ChunkSearchResult> chunks = new LinkedHashMap<>();
+        Map<UUID, Double> scores = new LinkedHashMap<>();
+        for (List<ChunkSearchResult> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                ChunkSearchResult result = ranking.get(rank);
+                chunks.putIfAbsent(result.chunkId(), result);
+                scores.merge(result.chunkId(), 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+        // Report similarity relative to a chunk ranked first by every leg, so it stays within (0,1].
+        double best = (double) rankings.size() / (rrfK + 1);
+        List<ChunkSearchResult> fused = new ArrayList<>(chunks.size());
+        chunks.forEach((id, result) -> fused.add(new ChunkSearchResult(result.chunkId(), result.documentId(),
+                result.chunkIndex(), result.content(), scores.get(id) / best)));
+        fused.sort(Comparator.comparingDouble(ChunkSearchResult::similarity).reversed());
+        return fused.size() > topK ? new ArrayList<>(fused.subList(0, topK)) : fused;
+    }
+
+    private List<ChunkSearchResult> timed(String leg, Supplier<List<ChunkSearchResult>> search) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return search.get();
+        } finally {
+            sample.stop(meterRegistry.timer("rag.search.leg", "leg", leg));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lexicalExecutor.shutdownNow();
+    }
+}
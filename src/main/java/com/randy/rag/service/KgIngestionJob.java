@@ -32,6 +32,7 @@ import com.randy.rag.service.KgExtractionService.ExtractedEntity;
 import com.randy.rag.service.KgExtractionService.ExtractedEvent;
 import com.randy.rag.service.KgExtractionService.ExtractedParticipant;
 import com.randy.rag.service.KgExtractionService.ExtractedRelation;
+import com.randy.rag.service.shard.ShardRouter;
 
 @Service
 public class KgIngestionJob {
@@ -39,6 +40,7 @@ public class KgIngestionJob {
     private static final Logger log = LoggerFactory.getLogger(KgIngestionJob.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
     private final DocumentRepository documentRepository;
     private final KgRunHistoryRepository historyRepository;
     private final KgExtractionService kgExtractionService;
@@ -56,8 +58,10 @@ public class KgIngestionJob {
                           EntityAliasRepository entityAliasRepository,
                           EventRepository eventRepository,
                           EventParticipantRepository eventParticipantRepository,
-                          RelationRepository relationRepository) {
+                          RelationRepository relationRepository,
+                          ShardRouter shardRouter) {
         this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
         this.documentRepository = documentRepository;
         this.historyRepository = historyRepository;
         this.kgExtractionService = kgExtractionService;
@@ -98,7 +102,7 @@ public class KgIngestionJob {
     }
 
     private void processDocument(UUID docId) {
-        List<ChunkRow> chunks = jdbcTemplate.query(
+        List<ChunkRow> chunks = shardRouter.forDocument(docId).jdbcTemplate().query(
                 "SELECT id, chunk_index, content FROM chunks WHERE document_id = ? ORDER BY chunk_index",
                 (rs, rowNum) -> new ChunkRow((UUID) rs.getObject("id"), rs.getInt("chunk_index"), rs.getString("content")),
                 docId);
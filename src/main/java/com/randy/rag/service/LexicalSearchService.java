@@ -0,0 +1,155 @@
+package com.randy.rag.service;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.model.Chunk;
+import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.service.lexical.Bm25Index;
+import com.randy.rag.service.lexical.ChunkText;
+import com.randy.rag.service.lexical.ChunkTextLoader;
+import com.randy.rag.service.lexical.TextTokenizer;
+import com.randy.rag.service.shard.ShardRouter;
+
+/**
+ * Keyword retrieval over chunk text. With rag.lexical.backend=postgres it queries chunks.content_tsv (a generated
+ * tsvector column with a GIN index, see schema-chunks.sql); with rag.lexical.backend=memory it answers from the in-JVM
+ * {@link Bm25Index} once that is loaded, falling back to Postgres until then.
+ * Query terms are OR-ed so a question that mentions one rare name or code still matches; stopwords are dropped
+ * first (see {@link TextTokenizer}) so the OR stays selective.
+ */
+@Service
+public class LexicalSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(LexicalSearchService.class);
+
+    // Must match the configuration used by the generated column in schema-chunks.sql, or the GIN index is not used.
+    static final String TEXT_SEARCH_CONFIG = "simple";
+
+    private static final int MAX_TERMS = 32;
+
+    private final ShardRouter shardRouter;
+    private final Bm25Index bm25Index;
+    private final ChunkTextLoader chunkTextLoader;
+    private final boolean inMemory;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public LexicalSearchService(ShardRouter shardRouter,
+                                Bm25Index bm25Index,
+                                ChunkTextLoader chunkTextLoader,
+                                @Value("${rag.lexical.backend:postgres}") String backend) {
+        this.shardRouter = shardRouter;
+        this.bm25Index = bm25Index;
+        this.chunkTextLoader = chunkTextLoader;
+        this.inMemory = "memory".equals(backend == null ? "" : backend.trim().toLowerCase(Locale.ROOT));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (inMemory) {
+            rebuild();
+        }
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * Rebuilds the in-memory index from chunks in the background; returns false if disabled or already running.
+     */
+    public boolean rebuild() {
+        if (!inMemory || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                bm25Index.rebuild(chunkTextLoader);
+            } catch (Exception e) {
+                log.error("Failed to build BM25 index: {}", e.getMessage());
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = bm25Index.describe();
+        status.put("backend", inMemory ? "memory" : "postgres");
+        status.put("rebuilding", rebuilding.get());
+        return status;
+    }
+
+    /**
+     * Keeps the in-memory index in step with persistChunks; Postgres needs nothing since content_tsv is generated.
+     */
+    public void index(List<Chunk> chunks) {
+        if (!inMemory || chunks.isEmpty()) {
+            return;
+        }
+        bm25Index.add(chunks.stream()
+                .map(chunk -> new ChunkText(chunk.getId(), chunk.getDocumentId(), chunk.getChunkIndex(),
+                        chunk.getCategory(), chunk.getContent()))
+                .toList());
+    }
+
+    public List<ChunkSearchResult> search(String queryText, int limit, String category) {
+        if (inMemory && bm25Index.isReady()) {
+            return bm25Index.search(queryText, limit, category);
+        }
+        return searchPostgres(queryText, limit, category);
+    }
+
+    private List<ChunkSearchResult> searchPostgres(String queryText, int limit, String category) {
+        String tsQuery = toTsQuery(queryText);
+        if (tsQuery.isEmpty()) {
+            return List.of();
+        }
+        boolean filterByCategory = category != null && !category.isBlank();
+        // Normalization 1|32: divide by log(document length), then scale into [0,1).
+        // Content is left out; HybridSearchService loads it for the fused top-k only.
+        String sql = "SELECT c.id, c.document_id, c.chunk_index, ts_rank(c.content_tsv, q, 33) AS rank "
+                + "FROM chunks c "
+                + "CROSS JOIN to_tsquery('" + TEXT_SEARCH_CONFIG + "', ?) q "
+                + "WHERE c.content_tsv @@ q AND c.duplicate_of IS NULL "
+                + (filterByCategory ? "AND c.category = ? " : "")
+                + "ORDER BY rank DESC LIMIT ?";
+        List<List<ChunkSearchResult>> perShard = shardRouter.gather("lexical-search", shard -> shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            int idx = 1;
+            ps.setString(idx++, tsQuery);
+            if (filterByCategory) {
+                ps.setString(idx++, category);
+            }
+            ps.setInt(idx, limit);
+            return ps;
+        }, (rs, rowNum) -> new ChunkSearchResult(
+                (UUID) rs.getObject("id"),
+                (UUID) rs.getObject("document_id"),
+                rs.getInt("chunk_index"),
+                null,
+                rs.getDouble("rank"))));
+        return ShardRouter.mergeTopK(perShard, ChunkSearchResult::similarity, limit);
+    }
+
+    /**
+     * Reduces free text to "term1 | term2 | ..." so user input never reaches the tsquery parser unescaped.
+     * Empty when the text has only stopwords; the vector leg answers those queries alone.
+     */
+    static String toTsQuery(String queryText) {
+        return String.join(" | ", TextTokenizer.distinctTerms(queryText, MAX_TERMS));
+    }
+}
@@ -0,0 +1,137 @@
+package com.randy.rag.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.service.vector.VectorMath;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Maximal Marginal Relevance: picks top-k from a larger candidate pool, each step taking the candidate that
+ * maximizes lambda * relevance - (1 - lambda) * (max cosine to anything already picked). Overlapping neighbor
+ * chunks score as near-duplicates of each other, so they stop crowding out the prompt; candidates at or above
+ * rag.mmr.max-similarity to a picked chunk are dropped outright.
+ * Publishes rag.mmr (added latency), rag.mmr.displaced (plain top-k hits replaced) and rag.mmr.dropped.
+ */
+@Service
+public class MmrReranker {
+
+    private final VectorStoreService vectorStoreService;
+    private final MeterRegistry meterRegistry;
+    private final double maxSimilarity;
+    private final DistributionSummary displaced;
+    private final DistributionSummary dropped;
+
+    public MmrReranker(VectorStoreService vectorStoreService,
+                       MeterRegistry meterRegistry,
+                       @Value("${rag.mmr.max-similarity:0.97}") double maxSimilarity) {
+        this.vectorStoreService = vectorStoreService;
+        this.meterRegistry = meterRegistry;
+        this.maxSimilarity = maxSimilarity;
+        this.displaced = DistributionSummary.builder("rag.mmr.displaced").baseUnit("chunks").register(meterRegistry);
+        this.dropped = DistributionSummary.builder("rag.mmr.dropped").baseUnit("chunks").register(meterRegistry);
+    }
+
+    /**
+     * Candidates must be ordered by relevance (best first); the result keeps their similarity scores.
+     */
+    public List<ChunkSearchResult> rerank(List<ChunkSearchResult> candidates, int topK, double lambda) {
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Map<UUID, float[]> embeddings = vectorStoreService.embeddingsFor(
+                    candidates.stream().map(ChunkSearchResult::chunkId).toList());
+            int[] picked = select(candidates, embeddings, topK, lambda);
+            List<ChunkSearchResult> selected = new ArrayList<>(picked.length);
+            int kept = 0;
+            for (int index : picked) {
+                selected.add(candidates.get(index));
+                if (index < topK) {
+                    kept++;
+                }
+            }
+            displaced.record(Math.min(topK, candidates.size()) - kept);
+            return selected;
+        } finally {
+            sample.stop(meterRegistry.timer("rag.mmr"));
+        }
+    }
+
+    int[] select(List<ChunkSearchResult> candidates, Map<UUID, float[]> embeddings, int topK, double lambda) {
+        int n = candidates.size();
+        int dim = embeddings.values().stream().findFirst().map(vector -> vector.length).orElse(0);
+        // Unit vectors packed into one slab, so cosine is a dot product over contiguous memory.
+        float[] slab = new float[n * dim];
+        boolean[] hasVector = new boolean[n];
+        double bestScore = 0;
+        for (int i = 0; i < n; i++) {
+            bestScore = Math.max(bestScore, candidates.get(i).similarity());
+            float[] vector = embeddings.get(candidates.get(i).chunkId());
+            if (vector == null || vector.length != dim) {
+                continue;
+            }
+            float norm = (float) Math.sqrt(VectorMath.dot(vector, vector));
+            if (norm == 0) {
+                continue;
+            }
+            for (int d = 0; d < dim; d++) {
+                slab[i * dim + d] = vector[d] / norm;
+            }
+            hasVector[i] = true;
+        }
+
+        // Running max similarity of each candidate to the picked set, updated once per pick: O(k * n) dot products.
+        float[] redundancy = new float[n];
+        boolean[] used = new boolean[n];
+        int[] picked = new int[Math.min(topK, n)];
+        int count = 0;
+        int droppedCount = 0;
+        while (count < picked.length) {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (used[i]) {
+                    continue;
+                }
+                if (redundancy[i] >= maxSimilarity) {
+                    used[i] = true;
+                    droppedCount++;
+                    continue;
+                }
+                double relevance = bestScore > 0 ? candidates.get(i).similarity() / bestScore : 0;
+                double value = lambda * relevance - (1 - lambda) * redundancy[i];
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            used[best] = true;
+            picked[count++] = best;
+            if (!hasVector[best]) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                if (!used[i] && hasVector[i]) {
+                    redundancy[i] = Math.max(redundancy[i], VectorMath.dot(slab, best * dim, slab, i * dim, dim));
+                }
+            }
+        }
+        dropped.record(droppedCount);
+        return count == picked.length ? picked : Arrays.copyOf(picked, count);
+    }
+}
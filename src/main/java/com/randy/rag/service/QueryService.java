@@ -18,10 +18,13 @@ import com.randy.rag.model.ChunkSearchResult;
 import com.randy.rag.model.QueryRequest;
 import com.randy.rag.model.QueryResponse;
 import com.randy.rag.model.QueryResponseSource;
+import com.randy.rag.model.RetrievalMode;
 import com.randy.rag.service.KnowledgeGraphService.KgCountAnswer;
 import com.randy.rag.service.QuestionRouterService.KgRoutedAnswer;
+import com.randy.rag.service.cache.SemanticAnswerCache;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import reactor.core.publisher.Flux;
 
 @Service
@@ -35,15 +38,43 @@ public class QueryService {
     private final String chatModel;
     private final QuestionRouterService questionRouterService;
     private final ObjectMapper objectMapper;
+    private final HybridSearchService hybridSearchService;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final RetrievalMode defaultRetrieval;
+    private final MmrReranker mmrReranker;
+    private final double defaultMmrLambda;
+    private final int mmrCandidates;
+    private final MeterRegistry meterRegistry;
+    private final int defaultContextWindow;
+    private final int contextMaxBytes;
 
     public QueryService(EmbeddingService embeddingService,
                         VectorStoreService vectorStoreService,
+                        HybridSearchService hybridSearchService,
+                        SemanticAnswerCache semanticAnswerCache,
+                        MmrReranker mmrReranker,
+                        MeterRegistry meterRegistry,
                         WebClient openAiWebClient,
                         QuestionRouterService questionRouterService,
                         ObjectMapper objectMapper,
-                        @Value("${openai.chat-model}") String chatModel) {
+                        @Value("${openai.chat-model}") String chatModel,
+                        @Value("${rag.retrieval.default:vector}") String defaultRetrieval,
+                        @Value("${rag.mmr.default-lambda:1.0}") double defaultMmrLambda,
+                        @Value("${rag.mmr.candidates:4}") int mmrCandidates,
+                        @Value("${rag.context.window:0}") int defaultContextWindow,
+                        @Value("${rag.context.max-bytes:8192}") int contextMaxBytes) {
         this.embeddingService = embeddingService;
         this.vectorStoreService = vectorStoreService;
+        this.hybridSearchService = hybridSearchService;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.mmrReranker = mmrReranker;
+        this.meterRegistry = meterRegistry;
+        this.defaultMmrLambda = defaultMmrLambda;
+        this.mmrCandidates = Math.max(1, mmrCandidates);
+        this.defaultContextWindow = defaultContextWindow;
+        this.contextMaxBytes = contextMaxBytes;
+        RetrievalMode configured = RetrievalMode.from(defaultRetrieval);
+        this.defaultRetrieval = configured == null ? RetrievalMode.VECTOR : configured;
         this.openAiWebClient = openAiWebClient;
         this.chatModel = chatModel;
         this.questionRouterService = questionRouterService;
@@ -58,19 +89,55 @@ public class QueryService {
         }
 
         float[] queryEmbedding = embeddingService.embed(request.query());
-        List<ChunkSearchResult> matches = vectorStoreService.searchSimilar(queryEmbedding, request.resolvedTopK(), request.category());
+        long corpusVersion = vectorStoreService.corpusVersion();
+        Optional<QueryResponse> cached = semanticAnswerCache.lookup(queryEmbedding, cacheScope(request), corpusVersion);
+        if (cached.isPresent()) {
+            log.info("Query answered from semantic cache (category={})", request.category());
+            return cached.get();
+        }
+
+        List<ChunkSearchResult> matches = retrieve(request, queryEmbedding);
+        return generate(request, queryEmbedding, matches, corpusVersion);
+    }
+
+    /**
+     * Answers a question whose embedding and matches were computed up front (the batch path); corpusVersion is the
+     * one read before those matches were retrieved. Knowledge-graph routing and the semantic cache still apply.
+     */
+    QueryResponse answer(QueryRequest request, float[] queryEmbedding, List<ChunkSearchResult> matches,
+                         long corpusVersion) {
+        Optional<QueryResponse> kgResponse = tryKnowledgeGraph(request);
+        if (kgResponse.isPresent()) {
+            return kgResponse.get();
+        }
+        Optional<QueryResponse> cached = semanticAnswerCache.lookup(queryEmbedding, cacheScope(request), corpusVersion);
+        return cached.orElseGet(() -> generate(request, queryEmbedding, matches, corpusVersion));
+    }
+
+    private QueryResponse generate(QueryRequest request, float[] queryEmbedding, List<ChunkSearchResult> matches,
+                                   long corpusVersion) {
         if (matches.isEmpty()) {
             return new QueryResponse("I could not find relevant information in the knowledge base.", List.of());
         }
 
         String prompt = buildPrompt(request.query(), matches);
+        // Rough token estimate (4 chars/token), split by MMR so the prompt savings can be compared to rag.mmr latency.
+        meterRegistry.summary("rag.prompt.tokens", "mmr", mmrLambda(request) < 1 ? "on" : "off")
+                .record(prompt.length() / 4.0);
+        long llmStart = System.nanoTime();
         String answer = invokeChatCompletion(prompt);
+        long llmNanos = System.nanoTime() - llmStart;
 
-        List<QueryResponseSource> sources = matches.stream()
-                .map(match -> new QueryResponseSource(match.chunkIndex(), match.similarity()))
-                .collect(Collectors.toList());
+        QueryResponse response = new QueryResponse(answer, sources(matches));
+        semanticAnswerCache.store(queryEmbedding, cacheScope(request), corpusVersion, response, llmNanos);
+        return response;
+    }
 
-        return new QueryResponse(answer, sources);
+    static List<QueryResponseSource> sources(List<ChunkSearchResult> matches) {
+        return matches.stream()
+                .map(match -> new QueryResponseSource(match.chunkIndex(), match.similarity(), match.documentId(),
+                        match.duplicates()))
+                .collect(Collectors.toList());
     }
 
     public Flux<String> answerStream(QueryRequest request) {
@@ -80,7 +147,12 @@ public class QueryService {
         }
 
         float[] queryEmbedding = embeddingService.embed(request.query());
-        List<ChunkSearchResult> matches = vectorStoreService.searchSimilar(queryEmbedding, request.resolvedTopK(), request.category());
+        Optional<QueryResponse> cached = semanticAnswerCache.lookup(queryEmbedding, cacheScope(request),
+                vectorStoreService.corpusVersion());
+        if (cached.isPresent()) {
+            return Flux.just(cached.get().answer());
+        }
+        List<ChunkSearchResult> matches = retrieve(request, queryEmbedding);
         if (matches.isEmpty()) {
             return Flux.just("I could not find relevant information in the knowledge base.");
         }
@@ -88,6 +160,50 @@ public class QueryService {
         return streamChatCompletion(prompt);
     }
 
+    long corpusVersion() {
+        return vectorStoreService.corpusVersion();
+    }
+
+    List<ChunkSearchResult> retrieve(QueryRequest request, float[] queryEmbedding) {
+        RetrievalMode retrieval = retrieval(request);
+        int topK = request.resolvedTopK();
+        double lambda = mmrLambda(request);
+        // With MMR on, rank a larger id-only pool, diversify it, then load text for the chosen top-k only.
+        int depth = lambda < 1 ? topK * mmrCandidates : topK;
+        List<ChunkSearchResult> candidates = retrieval == RetrievalMode.HYBRID
+                ? hybridSearchService.searchCandidates(request.query(), queryEmbedding, depth,
+                        request.category(), request.searchMode())
+                : vectorStoreService.searchCandidates(queryEmbedding, depth, request.category(), request.searchMode());
+        if (lambda < 1) {
+            candidates = mmrReranker.rerank(candidates, topK, lambda);
+        }
+        List<ChunkSearchResult> matches = vectorStoreService.expandContext(
+                vectorStoreService.withContent(candidates), contextWindow(request), contextMaxBytes);
+        return vectorStoreService.withDuplicates(matches);
+    }
+
+    private double mmrLambda(QueryRequest request) {
+        return request.mmrLambda() == null ? defaultMmrLambda : request.mmrLambda();
+    }
+
+    private RetrievalMode retrieval(QueryRequest request) {
+        return request.retrieval() == null ? defaultRetrieval : request.retrieval();
+    }
+
+    private int contextWindow(QueryRequest request) {
+        return request.contextWindow() == null ? defaultContextWindow : request.contextWindow();
+    }
+
+    /**
+     * Semantic-cache scope: the resolved options that {@link #retrieve} uses, so a cached answer is only reused
+     * for a request that would have put the same chunks in the prompt.
+     */
+    private SemanticAnswerCache.ScopeKey cacheScope(QueryRequest request) {
+        return new SemanticAnswerCache.ScopeKey(request.category(), request.resolvedTopK(),
+                vectorStoreService.resolveSearchMode(request.searchMode()), retrieval(request), mmrLambda(request),
+                contextWindow(request));
+    }
+
     private Optional<QueryResponse> tryKnowledgeGraph(QueryRequest request) {
         Optional<KgRoutedAnswer> routed = questionRouterService.routeToKnowledgeGraph(request.query());
         if (routed.isEmpty()) {
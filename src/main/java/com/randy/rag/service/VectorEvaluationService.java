@@ -0,0 +1,170 @@
+package com.randy.rag.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.model.SearchMode;
+import com.randy.rag.service.vector.QuantizedVectorIndex;
+import com.randy.rag.service.vector.VectorCorpusLoader;
+import com.randy.rag.service.vector.VectorHit;
+import com.randy.rag.service.vector.VectorIndex;
+import com.randy.rag.service.vector.VectorStorage;
+
+/**
+ * Measures recall@k and latency of a search backend against the exact Postgres query
+ * (sequential scan, SearchMode.EXACT), using stored chunk embeddings as queries.
+ * While a halfvec migration is prepared but not swapped, the postgres report also covers the shadow halfvec
+ * column, so both storage layouts are compared against the same float32 ground truth.
+ */
+@Service
+public class VectorEvaluationService {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorEvaluationService.class);
+
+    private final VectorStoreService vectorStoreService;
+    private final List<VectorIndex> vectorIndexes;
+    private final VectorCorpusLoader corpusLoader;
+    private final VectorStorage vectorStorage;
+    private final HalfvecMigrationJob halfvecMigrationJob;
+
+    public VectorEvaluationService(VectorStoreService vectorStoreService,
+                                   List<VectorIndex> vectorIndexes,
+                                   VectorCorpusLoader corpusLoader,
+                                   VectorStorage vectorStorage,
+                                   HalfvecMigrationJob halfvecMigrationJob) {
+        this.vectorStoreService = vectorStoreService;
+        this.vectorIndexes = vectorIndexes;
+        this.corpusLoader = corpusLoader;
+        this.vectorStorage = vectorStorage;
+        this.halfvecMigrationJob = halfvecMigrationJob;
+    }
+
+    public EvaluationReport evaluate(String backend, int k, int queryCount, String category, List<Integer> oversamples) {
+        List<float[]> queries = corpusLoader.sample(queryCount);
+        List<Set<UUID>> truth = new ArrayList<>(queries.size());
+        long[] exactNanos = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            List<ChunkSearchResult> exact = vectorStoreService.searchPostgres(queries.get(i), k, category, SearchMode.EXACT);
+            exactNanos[i] = System.nanoTime() - start;
+            Set<UUID> ids = new HashSet<>();
+            exact.forEach(result -> ids.add(result.chunkId()));
+            truth.add(ids);
+        }
+        Variant baseline = new Variant("postgres-exact", 1.0, LatencyStats.of(exactNanos));
+
+        List<Variant> variants = new ArrayList<>();
+        Map<String, Object> description;
+        if ("postgres".equalsIgnoreCase(backend)) {
+            for (SearchMode mode : List.of(SearchMode.FAST, SearchMode.BALANCED)) {
+                variants.add(measure("postgres-" + mode.key(), queries, truth,
+                        q -> vectorStoreService.searchPostgres(q, k, category, mode).stream().map(ChunkSearchResult::chunkId).toList()));
+            }
+            if (halfvecMigrationJob.isShadowReady()) {
+                for (SearchMode mode : List.of(SearchMode.FAST, SearchMode.BALANCED, SearchMode.EXACT)) {
+                    variants.add(measure("postgres-halfvec-" + mode.key(), queries, truth,
+                            q -> vectorStoreService.searchPostgres(q, k, category, mode, HalfvecMigrationJob.SHADOW_COLUMN)
+                                    .stream().map(ChunkSearchResult::chunkId).toList()));
+                }
+            }
+            description = Map.of("backend", "postgres",
+                    "storage", vectorStorage.isHalfvecEverywhere() ? VectorStorage.HALFVEC : VectorStorage.FLOAT32);
+        } else {
+            VectorIndex index = vectorIndexes.stream()
+                    .filter(candidate -> candidate.name().equalsIgnoreCase(backend))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown vector backend: " + backend));
+            if (index == vectorStoreService.activeIndex()) {
+                if (!index.isReady()) {
+                    throw new IllegalStateException("Vector backend " + index.name() + " is still loading");
+                }
+                description = measureIndex(index, k, category, oversamples, queries, truth, variants);
+            } else {
+                // Backends that are not serving traffic are built just for this evaluation and dropped afterwards:
+                // persistChunks never updates them, so a kept copy would only hold heap and drift from the corpus.
+                synchronized (index) {
+                    log.info("Building {} index for evaluation", index.name());
+                    index.rebuild(corpusLoader);
+                    try {
+                        description = measureIndex(index, k, category, oversamples, queries, truth, variants);
+                    } finally {
+                        index.release();
+                    }
+                }
+            }
+        }
+        return new EvaluationReport(backend, k, queries.size(), category, baseline, variants, description);
+    }
+
+    private Map<String, Object> measureIndex(VectorIndex index, int k, String category, List<Integer> oversamples,
+                                             List<float[]> queries, List<Set<UUID>> truth, List<Variant> variants) {
+        if (index instanceof QuantizedVectorIndex quantized && oversamples != null && !oversamples.isEmpty()) {
+            for (int factor : oversamples) {
+                variants.add(measure(index.name() + "-shortlist-" + (factor * k), queries, truth,
+                        q -> ids(quantized.search(q, k, category, factor))));
+            }
+        } else {
+            for (SearchMode mode : List.of(SearchMode.FAST, SearchMode.BALANCED)) {
+                variants.add(measure(index.name() + "-" + mode.key(), queries, truth,
+                        q -> ids(index.search(q, k, category, mode))));
+            }
+        }
+        return index.describe();
+    }
+
+    private Variant measure(String label, List<float[]> queries, List<Set<UUID>> truth, Function<float[], List<UUID>> search) {
+        long[] nanos = new long[queries.size()];
+        double recallSum = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            List<UUID> found = search.apply(queries.get(i));
+            nanos[i] = System.nanoTime() - start;
+            Set<UUID> expected = truth.get(i);
+            if (expected.isEmpty()) {
+                recallSum += 1;
+                continue;
+            }
+            long matched = found.stream().filter(expected::contains).count();
+            recallSum += (double) matched / expected.size();
+        }
+        return new Variant(label, queries.isEmpty() ? 0 : recallSum / queries.size(), LatencyStats.of(nanos));
+    }
+
+    private static List<UUID> ids(List<VectorHit> hits) {
+        return hits.stream().map(VectorHit::chunkId).toList();
+    }
+
+    public record EvaluationReport(String backend, int k, int queries, String category, Variant exactBaseline,
+                                   List<Variant> variants, Map<String, Object> backendDescription) {
+    }
+
+    public record Variant(String label, double recallAtK, LatencyStats latency) {
+    }
+
+    public record LatencyStats(double meanMs, double p50Ms, double p95Ms, double maxMs) {
+
+        static LatencyStats of(long[] nanos) {
+            if (nanos.length == 0) {
+                return new LatencyStats(0, 0, 0, 0);
+            }
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            double mean = Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+            return new LatencyStats(mean,
+                    sorted[(int) Math.floor(0.50 * (sorted.length - 1))] / 1_000_000.0,
+                    sorted[(int) Math.floor(0.95 * (sorted.length - 1))] / 1_000_000.0,
+                    sorted[sorted.length - 1] / 1_000_000.0);
+        }
+    }
+}
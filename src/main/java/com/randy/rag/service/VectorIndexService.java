@@ -0,0 +1,540 @@
+package com.randy.rag.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+import com.randy.rag.service.vector.VectorStorage;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Owns the ANN index on chunks.embedding: creates it when missing and rebuilds it online
+ * (CREATE INDEX CONCURRENTLY + transactional swap) so searches keep running while a new graph/list layout is built.
+ * Categories with at least vector.index.category-min-chunks chunks on a shard also get a partial index there
+ * (WHERE category = '...'), so a filtered search walks a graph holding only that category.
+ * With vector.prefix.dimensions set, an extra index covers only the renormalized leading dimensions (a much
+ * smaller graph) and category indexes are built on that prefix too, since that is what searches order by.
+ * Rebuilds and status cover the primary; extra chunk shards get the main, prefix and category indexes created.
+ */
+@Service
+public class VectorIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorIndexService.class);
+
+    public static final String INDEX_NAME = "idx_chunks_embedding";
+    private static final String BUILD_INDEX_NAME = INDEX_NAME + "_build";
+    private static final String SWAP_LOCK_TIMEOUT = "5s";
+    private static final int SWAP_ATTEMPTS = 5;
+    private static final long SWAP_RETRY_DELAY_MILLIS = 2000;
+    // SQLSTATE raised when lock_timeout expires.
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    // Operator class must match the distance operator used in ORDER BY, otherwise the planner ignores the index.
+    private static final Map<String, String> OPERATOR_CLASSES = Map.of(
+            "<->", "vector_l2_ops",
+            "<=>", "vector_cosine_ops",
+            "<#>", "vector_ip_ops");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final VectorStorage vectorStorage;
+    private final String indexType;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final int ivfflatLists;
+    private final String maintenanceWorkMem;
+    private final boolean autoCreate;
+    private final int categoryMinChunks;
+    private final int prefixDimensions;
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "vector-index-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<BuildStatus> lastBuild = new AtomicReference<>(BuildStatus.idle());
+    // Held by the build executor while it creates indexes, and by HalfvecMigrationJob for a whole run: a build and
+    // the migration's column swap must never work on chunks at the same time.
+    private final ReentrantLock ddlLock = new ReentrantLock();
+
+    public VectorIndexService(JdbcTemplate jdbcTemplate,
+                              ShardRouter shardRouter,
+                              VectorStorage vectorStorage,
+                              @Value("${vector.index.type:hnsw}") String indexType,
+                              @Value("${vector.index.hnsw.m:16}") int hnswM,
+                              @Value("${vector.index.hnsw.ef-construction:64}") int hnswEfConstruction,
+                              @Value("${vector.index.ivfflat.lists:100}") int ivfflatLists,
+                              @Value("${vector.index.maintenance-work-mem:512MB}") String maintenanceWorkMem,
+                              @Value("${vector.index.auto-create:true}") boolean autoCreate,
+                              @Value("${vector.index.category-min-chunks:5000}") int categoryMinChunks,
+                              @Value("${vector.prefix.dimensions:0}") int prefixDimensions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.vectorStorage = vectorStorage;
+        this.indexType = indexType == null ? "none" : indexType.trim().toLowerCase(Locale.ROOT);
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+        this.ivfflatLists = ivfflatLists;
+        this.maintenanceWorkMem = maintenanceWorkMem;
+        this.autoCreate = autoCreate;
+        this.categoryMinChunks = categoryMinChunks;
+        this.prefixDimensions = Math.max(0, prefixDimensions);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        if (!autoCreate || "none".equals(indexType)) {
+            return;
+        }
+        try {
+            Boolean valid = indexValid(jdbcTemplate, INDEX_NAME);
+            if (!Boolean.TRUE.equals(valid) && !buildInProgress(jdbcTemplate, INDEX_NAME)) {
+                // The rebuild's swap drops an INVALID leftover in the same transaction that renames the new index.
+                log.info("Vector index {} {}; building {} index in background", INDEX_NAME,
+                        valid == null ? "missing" : "invalid", indexType);
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to verify vector index {}: {}", INDEX_NAME, e.getMessage());
+        }
+        for (Shard shard : shardRouter.shards()) {
+            if (!shard.isPrimary()) {
+                buildExecutor.submit(() -> ensureShardIndex(shard, INDEX_NAME,
+                        () -> createIndexSql(INDEX_NAME, "embedding", vectorStorage.typeOf(shard), null, ivfflatLists)));
+            }
+            if (prefixDimensions > 0) {
+                String name = prefixIndexName();
+                buildExecutor.submit(() -> ensureShardIndex(shard, name,
+                        () -> createIndexSql(name, prefixKey(shard), vectorStorage.typeOf(shard), null, ivfflatLists)));
+            }
+        }
+        ensureCategoryIndexes();
+    }
+
+    /**
+     * Queues partial-index builds for categories that have grown past the threshold and have none yet.
+     * Builds run on the same single-thread executor as full rebuilds, so they never overlap.
+     */
+    public void ensureCategoryIndexes() {
+        if (!autoCreate || "none".equals(indexType) || categoryMinChunks <= 0) {
+            return;
+        }
+        buildExecutor.submit(this::buildMissingCategoryIndexes);
+    }
+
+    public synchronized BuildStatus rebuild() {
+        BuildStatus current = lastBuild.get();
+        if ("RUNNING".equals(current.state())) {
+            return current;
+        }
+        if ("none".equals(indexType)) {
+            throw new IllegalStateException("vector.index.type is 'none'; nothing to build");
+        }
+        String ddl = createIndexSql(BUILD_INDEX_NAME);
+        BuildStatus running = new BuildStatus("RUNNING", indexType, ddl, LocalDateTime.now(), null, null);
+        lastBuild.set(running);
+        buildExecutor.submit(() -> runBuild(running, ddl));
+        return running;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("indexName", INDEX_NAME);
+        status.put("configuredType", indexType);
+        Boolean valid = indexValid(jdbcTemplate, INDEX_NAME);
+        status.put("exists", valid != null);
+        status.put("valid", Boolean.TRUE.equals(valid));
+        if (prefixDimensions > 0) {
+            Boolean prefixValid = indexValid(jdbcTemplate, prefixIndexName());
+            status.put("prefixIndex", Map.of("name", prefixIndexName(), "dimensions", prefixDimensions,
+                    "exists", prefixValid != null, "valid", Boolean.TRUE.equals(prefixValid)));
+        }
+        status.put("lastBuild", lastBuild.get());
+        status.put("progress", buildProgress());
+        status.put("categoryIndexes", jdbcTemplate.queryForList(
+                "SELECT name AS category, index_name FROM categories WHERE index_name IS NOT NULL ORDER BY name"));
+        return status;
+    }
+
+    /**
+     * Live progress of any CREATE INDEX on chunks, as reported by pg_stat_progress_create_index.
+     */
+    public List<Map<String, Object>> buildProgress() {
+        return jdbcTemplate.queryForList(
+                "SELECT p.pid, p.phase, p.blocks_done, p.blocks_total, p.tuples_done, p.tuples_total, "
+                        + "CASE WHEN p.tuples_total > 0 THEN round(100.0 * p.tuples_done / p.tuples_total, 1) "
+                        + "WHEN p.blocks_total > 0 THEN round(100.0 * p.blocks_done / p.blocks_total, 1) END AS percent_done "
+                        + "FROM pg_stat_progress_create_index p WHERE p.relid = 'chunks'::regclass");
+    }
+
+    /**
+     * Size, row count and bloat indicators for the actuator endpoint.
+     */
+    public Map<String, Object> statistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("indexName", INDEX_NAME);
+        stats.put("configuredType", indexType);
+        stats.putAll(jdbcTemplate.queryForMap(
+                "SELECT s.n_live_tup AS live_rows, s.n_dead_tup AS dead_rows, "
+                        + "CASE WHEN s.n_live_tup + s.n_dead_tup > 0 "
+                        + "THEN round(100.0 * s.n_dead_tup / (s.n_live_tup + s.n_dead_tup), 2) ELSE 0 END AS dead_row_percent, "
+                        + "s.last_autovacuum, s.last_vacuum, pg_total_relation_size('chunks') AS table_total_bytes "
+                        + "FROM pg_stat_user_tables s WHERE s.relid = 'chunks'::regclass"));
+        List<Map<String, Object>> index = jdbcTemplate.queryForList(
+                "SELECT am.amname AS access_method, pg_relation_size(i.indexrelid) AS index_bytes, "
+                        + "ic.reltuples::bigint AS index_tuples, i.indisvalid AS valid, st.idx_scan AS scans "
+                        + "FROM pg_index i "
+                        + "JOIN pg_class ic ON ic.oid = i.indexrelid "
+                        + "JOIN pg_am am ON am.oid = ic.relam "
+                        + "LEFT JOIN pg_stat_user_indexes st ON st.indexrelid = i.indexrelid "
+                        + "WHERE ic.relname = ?", INDEX_NAME);
+        stats.put("index", index.isEmpty() ? null : index.get(0));
+        return stats;
+    }
+
+    private void runBuild(BuildStatus running, String ddl) {
+        if (!ddlLock.tryLock()) {
+            log.warn("Skipping vector index rebuild: a halfvec migration is running");
+            lastBuild.set(running.finish("FAILED", "halfvec migration in progress; rebuild once it has finished"));
+            return;
+        }
+        log.info("Building vector index: {}", ddl);
+        try {
+            // CONCURRENTLY cannot run inside a transaction block, so the build itself runs in auto-commit.
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET maintenance_work_mem = '" + maintenanceWorkMem.replace("'", "") + "'");
+                    try {
+                        statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + BUILD_INDEX_NAME);
+                        statement.execute(ddl);
+                    } finally {
+                        statement.execute("RESET maintenance_work_mem");
+                    }
+                }
+                swapBuiltIndex(connection);
+                return null;
+            });
+            lastBuild.set(running.finish("COMPLETED", null));
+            log.info("Vector index {} rebuilt", INDEX_NAME);
+        } catch (Exception e) {
+            log.error("Vector index build failed: {}", e.getMessage());
+            lastBuild.set(running.finish("FAILED", e.getMessage()));
+            recoverFailedBuild();
+        } finally {
+            ddlLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the live index with the freshly built one in a single short transaction, so a failure between the
+     * drop and the rename rolls back to the old index instead of leaving chunks without one. The plain DROP INDEX
+     * needs an ACCESS EXCLUSIVE lock on chunks; lock_timeout keeps it from queueing every search behind a long
+     * transaction, and the swap is retried a few times before giving up.
+     */
+    private void swapBuiltIndex(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    statement.execute("SET LOCAL lock_timeout = '" + SWAP_LOCK_TIMEOUT + "'");
+                    statement.execute("DROP INDEX IF EXISTS " + INDEX_NAME);
+                    statement.execute("ALTER INDEX " + BUILD_INDEX_NAME + " RENAME TO " + INDEX_NAME);
+                    connection.commit();
+                    return;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    if (!LOCK_NOT_AVAILABLE.equals(e.getSQLState()) || attempt >= SWAP_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.info("Vector index swap could not get its lock (attempt {}); retrying", attempt);
+                    Thread.sleep(SWAP_RETRY_DELAY_MILLIS * attempt);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while swapping vector index", e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * A failed concurrent build leaves an INVALID index behind that still slows down writes, so it is dropped,
+     * but only while the live index still exists. Should the live index be gone, a valid build index is the only
+     * ANN index left and is renamed into place instead.
+     */
+    private void recoverFailedBuild() {
+        try {
+            Boolean built = indexValid(jdbcTemplate, BUILD_INDEX_NAME);
+            if (built == null) {
+                return;
+            }
+            if (Boolean.TRUE.equals(built) && !indexExists(INDEX_NAME)) {
+                jdbcTemplate.execute("ALTER INDEX " + BUILD_INDEX_NAME + " RENAME TO " + INDEX_NAME);
+                log.warn("Vector index {} was missing; kept the new build in its place", INDEX_NAME);
+                return;
+            }
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + BUILD_INDEX_NAME);
+        } catch (Exception cleanup) {
+            log.warn("Unable to clean up index {}: {}", BUILD_INDEX_NAME, cleanup.getMessage());
+        }
+    }
+
+    /**
+     * Each shard holds its own slice of every category, so counts and partial indexes are per shard: a category
+     * gets an index on the shards where it has reached the threshold. The categories table (primary) records the
+     * index name.
+     */
+    private void buildMissingCategoryIndexes() {
+        if (!ddlLock.tryLock()) {
+            // The migration queues ensureIndex() once it is done, which brings category indexes back.
+            log.info("Skipping partial vector index builds: a halfvec migration is running");
+            return;
+        }
+        try {
+            buildMissingCategoryIndexesLocked();
+        } finally {
+            ddlLock.unlock();
+        }
+    }
+
+    private void buildMissingCategoryIndexesLocked() {
+        Map<String, String> recorded = new HashMap<>();
+        try {
+            jdbcTemplate.query("SELECT name, index_name FROM categories WHERE index_name IS NOT NULL", rs -> {
+                recorded.put(rs.getString("name"), rs.getString("index_name"));
+            });
+        } catch (Exception e) {
+            log.error("Unable to list categories for partial vector indexes: {}", e.getMessage());
+            return;
+        }
+        for (Shard shard : shardRouter.shards()) {
+            List<String> categories;
+            try {
+                categories = shard.jdbcTemplate().queryForList(
+                        "SELECT c.category FROM chunks c WHERE c.category IS NOT NULL AND c.embedding IS NOT NULL "
+                                + "GROUP BY c.category HAVING COUNT(*) >= ?", String.class, categoryMinChunks);
+            } catch (Exception e) {
+                log.error("Unable to count categories on {}: {}", shard.name(), e.getMessage());
+                continue;
+            }
+            // One failing category (lock timeout, disk space) must not keep the others from getting their index.
+            for (String category : categories) {
+                try {
+                    buildCategoryIndex(shard, category, recorded.get(category));
+                } catch (Exception e) {
+                    log.error("Partial vector index build for category {} on {} failed: {}", category, shard.name(),
+                            e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void buildCategoryIndex(Shard shard, String category, String previousName) {
+        String name = categoryIndexName(category);
+        JdbcTemplate target = shard.jdbcTemplate();
+        if (!validIndexExists(target, name)) {
+            // ivfflat lists scale with row count; a category holds a fraction of the table.
+            String ddl = createIndexSql(name, prefixDimensions > 0 ? prefixKey(shard) : "embedding",
+                    vectorStorage.typeOf(shard), "category = " + VectorStoreService.sqlLiteral(category),
+                    Math.max(1, ivfflatLists / 4));
+            log.info("Building partial vector index for category {} on {}: {}", category, shard.name(), ddl);
+            executeDdl(target, ddl);
+        }
+        if (name.equals(previousName)) {
+            return;
+        }
+        if (previousName != null) {
+            // Built under an older naming scheme or prefix setting; the new index covers the same rows.
+            target.execute("DROP INDEX CONCURRENTLY IF EXISTS " + previousName);
+        }
+        jdbcTemplate.update("INSERT INTO categories (name, index_name) VALUES (?, ?) "
+                + "ON CONFLICT (name) DO UPDATE SET index_name = EXCLUDED.index_name", category, name);
+    }
+
+    private void ensureShardIndex(Shard shard, String name, Supplier<String> ddlSupplier) {
+        if (!ddlLock.tryLock()) {
+            log.info("Skipping vector index {} on {}: a halfvec migration is running", name, shard.name());
+            return;
+        }
+        try {
+            if (validIndexExists(shard.jdbcTemplate(), name)) {
+                return;
+            }
+            String ddl = ddlSupplier.get();
+            log.info("Building vector index on {}: {}", shard.name(), ddl);
+            executeDdl(shard.jdbcTemplate(), ddl);
+        } catch (Exception e) {
+            log.error("Vector index build on {} failed: {}", shard.name(), e.getMessage());
+        } finally {
+            ddlLock.unlock();
+        }
+    }
+
+    private void executeDdl(JdbcTemplate target, String ddl) {
+        target.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET maintenance_work_mem = '" + maintenanceWorkMem.replace("'", "") + "'");
+                try {
+                    statement.execute(ddl);
+                } finally {
+                    statement.execute("RESET maintenance_work_mem");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Category names are free text, so the index name is derived from the first 64 bits of the name's SHA-256
+     * (String.hashCode collides easily, and two categories sharing a name would share one partial index).
+     * Prefix-mode indexes get their own names so switching modes builds fresh ones instead of trusting the old
+     * layout.
+     */
+    String categoryIndexName(String category) {
+        String base = prefixDimensions > 0 ? prefixIndexName() : INDEX_NAME;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(category.getBytes(StandardCharsets.UTF_8));
+            return base + "_c" + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String prefixIndexName() {
+        return INDEX_NAME + "_p" + prefixDimensions;
+    }
+
+    private String prefixKey(Shard shard) {
+        return VectorStoreService.prefixExpression("embedding", prefixDimensions, vectorStorage.typeOf(shard));
+    }
+
+    /**
+     * Claims index DDL for a halfvec migration. Waits up to the given time so a quick validity check on the build
+     * executor does not turn the migration away, and returns false while an actual index build is running.
+     * Must be paired with {@link #unlockAfterMigration()} on the same thread.
+     */
+    boolean tryLockForMigration(long timeout, TimeUnit unit) throws InterruptedException {
+        return ddlLock.tryLock(timeout, unit);
+    }
+
+    void unlockAfterMigration() {
+        ddlLock.unlock();
+    }
+
+    /**
+     * Builds an ANN index on the given column synchronously (HalfvecMigrationJob's shadow column). No-op when
+     * vector.index.type is none.
+     */
+    void buildIndex(Shard shard, String name, String column, String type) {
+        if ("none".equals(indexType)) {
+            return;
+        }
+        executeDdl(shard.jdbcTemplate(), createIndexSql(name, column, type, null, ivfflatLists));
+    }
+
+    private String createIndexSql(String name) {
+        return createIndexSql(name, "embedding", vectorStorage.typeOf(shardRouter.primary()), null, ivfflatLists);
+    }
+
+    private String createIndexSql(String name, String key, String type, String predicate, int lists) {
+        // vector_l2_ops -> halfvec_l2_ops: pgvector names its operator classes after the element type.
+        String opclass = type + OPERATOR_CLASSES.get(VectorStoreService.DISTANCE_OPERATOR).substring(VectorStorage.FLOAT32.length());
+        String where = predicate == null ? "" : " WHERE " + predicate;
+        return switch (indexType) {
+            case "hnsw" -> "CREATE INDEX CONCURRENTLY " + name + " ON chunks USING hnsw (" + key + " " + opclass + ")"
+                    + " WITH (m = " + hnswM + ", ef_construction = " + hnswEfConstruction + ")" + where;
+            case "ivfflat" -> "CREATE INDEX CONCURRENTLY " + name + " ON chunks USING ivfflat (" + key + " " + opclass + ")"
+                    + " WITH (lists = " + lists + ")" + where;
+            default -> throw new IllegalStateException("Unsupported vector.index.type: " + indexType);
+        };
+    }
+
+    private boolean indexExists(String name) {
+        return indexExists(jdbcTemplate, name);
+    }
+
+    private static boolean indexExists(JdbcTemplate target, String name) {
+        Integer count = target.queryForObject(
+                "SELECT COUNT(1) FROM pg_class WHERE relname = ? AND relkind = 'i'", Integer.class, name);
+        return count != null && count > 0;
+    }
+
+    /**
+     * True when the named index exists and is usable. An INVALID leftover of an interrupted concurrent build would
+     * otherwise count as present forever (while still slowing down writes), so it is dropped and false returned;
+     * one that some session is still building is left alone and counts as present.
+     */
+    private boolean validIndexExists(JdbcTemplate target, String name) {
+        Boolean valid = indexValid(target, name);
+        if (valid == null) {
+            return false;
+        }
+        if (valid || buildInProgress(target, name)) {
+            return true;
+        }
+        log.warn("Dropping invalid index {} so it can be rebuilt", name);
+        target.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        return false;
+    }
+
+    private static boolean buildInProgress(JdbcTemplate target, String name) {
+        Integer count = target.queryForObject("SELECT COUNT(1) FROM pg_stat_progress_create_index p "
+                + "JOIN pg_class c ON c.oid = p.index_relid WHERE c.relname = ?", Integer.class, name);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Validity of the named index, or null when it does not exist.
+     */
+    private static Boolean indexValid(JdbcTemplate target, String name) {
+        List<Boolean> valid = target.queryForList("SELECT i.indisvalid FROM pg_index i "
+                + "JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?", Boolean.class, name);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    public record BuildStatus(String state, String indexType, String ddl, LocalDateTime startedAt,
+                              LocalDateTime completedAt, String error) {
+
+        static BuildStatus idle() {
+            return new BuildStatus("IDLE", null, null, null, null, null);
+        }
+
+        BuildStatus finish(String finalState, String failure) {
+            return new BuildStatus(finalState, indexType, ddl, startedAt, LocalDateTime.now(), failure);
+        }
+    }
+}
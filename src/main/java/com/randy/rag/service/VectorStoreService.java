@@ -1,53 +1,274 @@
 package com.randy.rag.service;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.time.Instant;
+import java.sql.Types;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.postgresql.util.PGobject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
+import com.randy.rag.config.PgVector;
 import com.randy.rag.model.Chunk;
+import com.randy.rag.model.ChunkReference;
 import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.model.SearchMode;
+import com.randy.rag.service.cache.BoundedCache;
+import com.randy.rag.service.cache.CacheKey;
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+import com.randy.rag.service.vector.IndexedVector;
+import com.randy.rag.service.vector.VectorCorpusLoader;
+import com.randy.rag.service.vector.VectorHit;
+import com.randy.rag.service.vector.VectorIndex;
+import com.randy.rag.service.vector.VectorMath;
+import com.randy.rag.service.vector.VectorStorage;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class VectorStoreService {
 
     private static final Logger log = LoggerFactory.getLogger(VectorStoreService.class);
 
-    private final JdbcTemplate jdbcTemplate;
+    // Shared with VectorIndexService so the ANN index is always built for the operator we order by.
+    public static final String DISTANCE_OPERATOR = "<->";
+    // Shorter suffix/prefix matches between adjacent chunks are treated as coincidence, not chunker overlap.
+    private static final int MIN_JOIN_OVERLAP = 8;
+
+    private final ShardRouter shardRouter;
     private final MeterRegistry meterRegistry;
-    private final boolean cacheEnabled;
-    private final long cacheTtlMillis;
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-    private final Timer searchTimer;
+    private final BoundedCache<CacheKey, List<ChunkSearchResult>> cache;
+    private final Map<SearchMode, List<String>> searchSettings = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Integer> efSearch = new EnumMap<>(SearchMode.class);
+    private final SearchMode defaultSearchMode;
     private final Timer persistTimer;
+    private final DistributionSummary persistRows;
+    private final DistributionSummary persistThroughput;
+    private final Counter duplicateChunks;
+    private final int persistBatchSize;
+    private final VectorCorpusLoader corpusLoader;
+    private final VectorIndex activeIndex;
+    private final AtomicBoolean activeIndexRebuilding = new AtomicBoolean();
+    private final LexicalSearchService lexicalSearchService;
+    private final AtomicLong corpusVersion = new AtomicLong();
+    private final ChunkContentStore contentStore;
+    private final VectorStorage vectorStorage;
+    private final int prefixDimensions;
+    private final int prefixOversample;
+    private final int chunkOverlap;
 
-    public VectorStoreService(JdbcTemplate jdbcTemplate,
+    public VectorStoreService(ShardRouter shardRouter,
+                              List<VectorIndex> vectorIndexes,
+                              VectorCorpusLoader corpusLoader,
+                              LexicalSearchService lexicalSearchService,
+                              ChunkContentStore contentStore,
+                              VectorStorage vectorStorage,
+                              @Value("${vector.backend:postgres}") String backend,
                               @Value("${vector.cache.enabled:true}") boolean cacheEnabled,
                               @Value("${vector.cache.ttl-seconds:300}") long cacheTtlSeconds,
+                              @Value("${vector.cache.max-bytes:67108864}") long cacheMaxBytes,
+                              @Value("${vector.persist.batch-size:500}") int persistBatchSize,
+                              @Value("${vector.search.default-mode:balanced}") String defaultSearchMode,
+                              @Value("${vector.search.fast.ef-search:20}") int fastEfSearch,
+                              @Value("${vector.search.fast.probes:1}") int fastProbes,
+                              @Value("${vector.search.balanced.ef-search:100}") int balancedEfSearch,
+                              @Value("${vector.search.balanced.probes:10}") int balancedProbes,
+                              @Value("${vector.search.iterative-scan:}") String iterativeScan,
+                              @Value("${vector.prefix.dimensions:0}") int prefixDimensions,
+                              @Value("${vector.prefix.oversample:8}") int prefixOversample,
+                              @Value("${rag.chunk.overlap:0}") int chunkOverlap,
                               MeterRegistry meterRegistry) {
-        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
         this.meterRegistry = meterRegistry;
-        this.cacheEnabled = cacheEnabled;
-        this.cacheTtlMillis = cacheTtlSeconds * 1000;
-        this.searchTimer = meterRegistry.timer("rag.vector.search");
+        this.cache = cacheEnabled
+                ? new BoundedCache<>("vector-search", cacheMaxBytes, Duration.ofSeconds(cacheTtlSeconds),
+                        VectorStoreService::estimateBytes, meterRegistry)
+                : null;
+        SearchMode configured = SearchMode.from(defaultSearchMode);
+        this.defaultSearchMode = configured == null ? SearchMode.BALANCED : configured;
+        searchSettings.put(SearchMode.FAST, settingsFor(fastEfSearch, fastProbes, iterativeScan));
+        searchSettings.put(SearchMode.BALANCED, settingsFor(balancedEfSearch, balancedProbes, iterativeScan));
+        efSearch.put(SearchMode.FAST, fastEfSearch);
+        efSearch.put(SearchMode.BALANCED, balancedEfSearch);
+        // Exact mode turns off index scans so the ORDER BY falls back to a full, exact distance sort.
+        searchSettings.put(SearchMode.EXACT, List.of("SET LOCAL enable_indexscan = off", "SET LOCAL enable_bitmapscan = off"));
         this.persistTimer = meterRegistry.timer("rag.vector.persist");
+        this.persistRows = DistributionSummary.builder("rag.vector.persist.rows")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        this.persistThroughput = DistributionSummary.builder("rag.vector.persist.throughput")
+                .baseUnit("rows/s")
+                .register(meterRegistry);
+        this.duplicateChunks = meterRegistry.counter("rag.vector.persist.duplicates");
+        this.persistBatchSize = persistBatchSize > 0 ? persistBatchSize : 1;
+        this.corpusLoader = corpusLoader;
+        this.lexicalSearchService = lexicalSearchService;
+        this.contentStore = contentStore;
+        this.vectorStorage = vectorStorage;
+        this.prefixDimensions = prefixDimensions;
+        this.prefixOversample = Math.max(1, prefixOversample);
+        this.chunkOverlap = Math.max(0, chunkOverlap);
+        this.activeIndex = vectorIndexes.stream()
+                .filter(index -> index.name().equalsIgnoreCase(backend))
+                .findFirst()
+                .orElse(null);
+        if (activeIndex == null && !"postgres".equalsIgnoreCase(backend)) {
+            log.warn("Unknown vector.backend '{}'; searching Postgres directly", backend);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveIndex() {
+        if (activeIndex == null) {
+            return;
+        }
+        // Until the in-memory index is loaded, searches keep going to Postgres.
+        CompletableFuture.runAsync(() -> {
+            try {
+                activeIndex.load(corpusLoader);
+            } catch (Exception e) {
+                log.error("Failed to build {} vector index: {}", activeIndex.name(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rebuilds (and for quantized backends retrains) the in-memory index in the background while the current
+     * snapshot keeps serving searches. Returns false when there is no in-memory backend or a rebuild is running.
+     */
+    public boolean rebuildActiveIndex() {
+        if (activeIndex == null || !activeIndexRebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                activeIndex.rebuild(corpusLoader);
+            } catch (Exception e) {
+                log.error("Failed to rebuild {} vector index: {}", activeIndex.name(), e.getMessage());
+            } finally {
+                activeIndexRebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Incremented whenever persistChunks writes rows; lets answer-level caches detect a changed corpus.
+     */
+    public long corpusVersion() {
+        return corpusVersion.get();
+    }
+
+    /**
+     * The mode a search with this request value actually runs in (vector.search.default-mode when null).
+     */
+    public SearchMode resolveSearchMode(SearchMode searchMode) {
+        return searchMode == null ? defaultSearchMode : searchMode;
+    }
+
+    public Map<String, Object> activeIndexStatus() {
+        if (activeIndex == null) {
+            return Map.of("backend", "postgres");
+        }
+        Map<String, Object> status = activeIndex.describe();
+        status.put("rebuilding", activeIndexRebuilding.get());
+        return status;
+    }
+
+    /**
+     * Hashes chunk content and links every chunk whose text already has a canonical row in the same category
+     * (or appears earlier in the list) to that row via duplicateOf, so callers can skip embedding it.
+     * Returns the number of duplicates found.
+     */
+    public int resolveDuplicates(List<Chunk> chunks, String category) {
+        if (chunks == null || chunks.isEmpty()) {
+            return 0;
+        }
+        Map<ByteBuffer, UUID> canonical = new HashMap<>();
+        List<byte[]> hashes = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            chunk.setContentHash(contentHash(chunk.getContent()));
+            hashes.add(chunk.getContentHash());
+        }
+        // Canonical rows can live on any shard, since documents sharing text hash to different ones.
+        shardRouter.gather("resolve-duplicates", shard -> shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT c.content_hash, c.id FROM chunks c "
+                            + "WHERE c.content_hash = ANY(?) AND c.duplicate_of IS NULL AND c.category IS NOT DISTINCT FROM ?");
+            ps.setArray(1, connection.createArrayOf("bytea", hashes.toArray(new byte[0][])));
+            ps.setString(2, category);
+            return ps;
+        }, (rs, rowNum) -> Map.entry(ByteBuffer.wrap(rs.getBytes("content_hash")), (UUID) rs.getObject("id"))))
+                .forEach(rows -> rows.forEach(row -> canonical.putIfAbsent(row.getKey(), row.getValue())));
+        int duplicates = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.getId() == null) {
+                chunk.setId(UUID.randomUUID());
+            }
+            UUID existing = canonical.putIfAbsent(ByteBuffer.wrap(chunk.getContentHash()), chunk.getId());
+            if (existing != null && !existing.equals(chunk.getId())) {
+                chunk.setDuplicateOf(existing);
+                chunk.setEmbedding(null);
+                duplicates++;
+            }
+        }
+        duplicateChunks.increment(duplicates);
+        return duplicates;
+    }
+
+    /**
+     * Attaches the other document positions that share each hit's text, in one lookup.
+     */
+    public List<ChunkSearchResult> withDuplicates(List<ChunkSearchResult> results) {
+        if (results.isEmpty()) {
+            return results;
+        }
+        Map<UUID, List<ChunkReference>> references = new HashMap<>();
+        shardRouter.gather("duplicates", shard -> shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT duplicate_of, document_id, chunk_index FROM chunks WHERE duplicate_of = ANY(?) "
+                            + "ORDER BY document_id, chunk_index");
+            ps.setArray(1, connection.createArrayOf("uuid", results.stream().map(ChunkSearchResult::chunkId).toArray()));
+            return ps;
+        }, (rs, rowNum) -> Map.entry((UUID) rs.getObject("duplicate_of"),
+                new ChunkReference((UUID) rs.getObject("document_id"), rs.getInt("chunk_index")))))
+                .forEach(rows -> rows.forEach(row -> references
+                        .computeIfAbsent(row.getKey(), id -> new ArrayList<>()).add(row.getValue())));
+        if (references.isEmpty()) {
+            return results;
+        }
+        return results.stream()
+                .map(result -> result.withDuplicates(references.getOrDefault(result.chunkId(), List.of())))
+                .toList();
     }
 
     public int persistChunks(List<Chunk> chunks) {
@@ -57,106 +278,144 @@ public class VectorStoreService {
 
         Timer.Sample sample = Timer.start(meterRegistry);
 
-        String sql = "INSERT INTO chunks (id, document_id, chunk_index, content, embedding) VALUES (?, ?, ?, ?, ?::vector)"
-                + " ON CONFLICT (id) DO UPDATE SET content = EXCLUDED.content, embedding = EXCLUDED.embedding";
 
-        List<Chunk> inserted = new ArrayList<>();
+        List<Chunk> inserted = new ArrayList<>(chunks.size());
         for (Chunk chunk : chunks) {
-            if (chunk.getEmbedding() == null || chunk.getEmbedding().length == 0) {
+            if (!chunk.isDuplicate() && (chunk.getEmbedding() == null || chunk.getEmbedding().length == 0)) {
                 log.warn("Skipping chunk {} because embedding is missing", chunk.getChunkIndex());
                 continue;
             }
-
-            // Bind values manually so we can pass the pgvector literal as a parameter.
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setObject(1, chunk.getId() == null ? UUID.randomUUID() : chunk.getId());
-                ps.setObject(2, chunk.getDocumentId());
-                ps.setInt(3, chunk.getChunkIndex());
-                ps.setString(4, chunk.getContent());
-                ps.setObject(5, pgVector(chunk.getEmbedding()));
-                return ps;
-            });
+            if (chunk.getId() == null) {
+                chunk.setId(UUID.randomUUID());
+            }
+            if (chunk.getContentHash() == null) {
+                chunk.setContentHash(contentHash(chunk.getContent()));
+            }
             inserted.add(chunk);
         }
-        log.info("Persisted {} chunks", inserted.size());
-        sample.stop(persistTimer);
-        return inserted.size();
-    }
+        fillMissingCategories(inserted);
 
-    public List<ChunkSearchResult> searchSimilar(float[] queryEmbedding, int topK) {
-        if (queryEmbedding == null || queryEmbedding.length == 0) {
-            return List.of();
+        // One prepared statement per batch instead of per chunk; with reWriteBatchedInserts the driver
+        // folds each batch into a multi-row INSERT so a large PDF costs a handful of round trips.
+        // Each chunk goes to the shard owning its document; halfvec shards narrow the float32 parameter on insert.
+        shardRouter.partition(inserted, Chunk::getDocumentId).forEach((shard, shardChunks) -> {
+            String sql = "INSERT INTO chunks (id, document_id, chunk_index, content, embedding, content_hash, duplicate_of, category)"
+                    + " VALUES (?, ?, ?, ?, " + VectorStorage.parameter(vectorStorage.typeOf(shard), 0) + ", ?, ?, ?)"
+                    + " ON CONFLICT (id) DO UPDATE SET content = EXCLUDED.content, embedding = EXCLUDED.embedding,"
+                    + " content_hash = EXCLUDED.content_hash, duplicate_of = EXCLUDED.duplicate_of, category = EXCLUDED.category";
+            for (int from = 0; from < shardChunks.size(); from += persistBatchSize) {
+                insertBatch(shard, sql, shardChunks.subList(from, Math.min(from + persistBatchSize, shardChunks.size())));
+            }
+        });
+        // Duplicates have no embedding of their own; in-memory indexes only hold the canonical rows.
+        List<Chunk> canonical = inserted.stream().filter(chunk -> !chunk.isDuplicate()).toList();
+        if (!canonical.isEmpty() && (activeIndex != null || lexicalSearchService.isInMemory())) {
+            updateInMemoryIndexes(canonical);
         }
-        String key = cacheKey(queryEmbedding, topK, null);
-        if (cacheEnabled) {
-            List<ChunkSearchResult> cached = getCached(key);
-            if (cached != null) {
-                return cached;
+        if (!inserted.isEmpty()) {
+            corpusVersion.incrementAndGet();
+            // New chunks can displace cached neighbours, so cached result lists are stale once the corpus changes.
+            // Keys carry the version, so this only frees the memory; stale entries could no longer be looked up.
+            if (cache != null) {
+                cache.invalidateAll();
             }
         }
-        Timer.Sample sample = Timer.start(meterRegistry);
-        // The "<->" operator performs pgvector cosine distance; smaller values mean more similar.
-        String sql = "SELECT id, document_id, chunk_index, content, (embedding <-> ?::vector) AS distance "
-                + "FROM chunks ORDER BY embedding <-> ?::vector LIMIT ?";
-        PGobject vector = pgVector(queryEmbedding);
-        RowMapper<ChunkSearchResult> mapper = (rs, rowNum) -> {
-            double distance = rs.getDouble("distance");
-            // Convert pgvector distance into a human-friendly similarity score within (0,1].
-            double similarity = 1 / (1 + distance);
-            return new ChunkSearchResult(
-                    (UUID) rs.getObject("id"),
-                    (UUID) rs.getObject("document_id"),
-                    rs.getInt("chunk_index"),
-                    rs.getString("content"),
-                    similarity);
-        };
-
-        List<ChunkSearchResult> results = jdbcTemplate.query(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setObject(1, vector);
-            ps.setObject(2, vector);
-            ps.setInt(3, topK);
-            return ps;
-        }, mapper);
-        sample.stop(searchTimer);
-        if (cacheEnabled) {
-            putCached(key, results);
+        long elapsedNanos = sample.stop(persistTimer);
+        persistRows.record(inserted.size());
+        if (elapsedNanos > 0 && !inserted.isEmpty()) {
+            persistThroughput.record(inserted.size() / (elapsedNanos / 1_000_000_000.0));
         }
-        return results;
+        log.info("Persisted {} chunks ({} duplicates) in {} ms", inserted.size(), inserted.size() - canonical.size(),
+                elapsedNanos / 1_000_000);
+        return inserted.size();
     }
 
-    private PGobject pgVector(float[] vector) {
-        try {
-            PGobject pgObject = new PGobject();
-            pgObject.setType("vector");
-            // pgvector expects a literal like "[0.1,0.2,...]" so we stringify before binding.
-            pgObject.setValue(toPgLiteral(vector));
-            return pgObject;
-        } catch (SQLException e) {
-            throw new IllegalStateException("Failed to convert embedding to pgvector", e);
+    private void insertBatch(Shard shard, String sql, List<Chunk> batch) {
+        shard.jdbcTemplate().batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Chunk chunk = batch.get(i);
+                ps.setObject(1, chunk.getId());
+                ps.setObject(2, chunk.getDocumentId());
+                ps.setInt(3, chunk.getChunkIndex());
+                ps.setString(4, chunk.getContent());
+                if (chunk.isDuplicate()) {
+                    ps.setNull(5, Types.OTHER);
+                } else {
+                    ps.setObject(5, new PgVector(chunk.getEmbedding()));
+                }
+                ps.setBytes(6, chunk.getContentHash());
+                ps.setObject(7, chunk.getDuplicateOf());
+                ps.setString(8, chunk.getCategory());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    private void fillMissingCategories(List<Chunk> chunks) {
+        List<UUID> documentIds = chunks.stream()
+                .filter(chunk -> chunk.getCategory() == null)
+                .map(Chunk::getDocumentId)
+                .distinct()
+                .toList();
+        if (documentIds.isEmpty()) {
+            return;
         }
+        Map<UUID, String> categories = corpusLoader.categoriesFor(documentIds);
+        chunks.stream()
+                .filter(chunk -> chunk.getCategory() == null)
+                .forEach(chunk -> chunk.setCategory(categories.get(chunk.getDocumentId())));
     }
 
-    private String toPgLiteral(float[] vector) {
-        StringBuilder builder = new StringBuilder("[");
-        for (int i = 0; i < vector.length; i++) {
-            builder.append(vector[i]);
-            if (i < vector.length - 1) {
-                builder.append(',');
+    private void updateInMemoryIndexes(List<Chunk> inserted) {
+        if (activeIndex != null) {
+            try {
+                activeIndex.add(inserted.stream()
+                        .map(chunk -> new IndexedVector(chunk.getId(), chunk.getDocumentId(), chunk.getChunkIndex(),
+                                chunk.getCategory(), chunk.getEmbedding()))
+                        .toList());
+            } catch (Exception e) {
+                // Postgres already has the rows; a rebuild will pick them up.
+                log.error("Failed to add {} chunks to {} vector index: {}", inserted.size(), activeIndex.name(), e.getMessage());
             }
         }
-        builder.append(']');
-        return builder.toString();
+        try {
+            lexicalSearchService.index(inserted);
+        } catch (Exception e) {
+            log.error("Failed to add {} chunks to BM25 index: {}", inserted.size(), e.getMessage());
+        }
+    }
+
+    public List<ChunkSearchResult> searchSimilar(float[] queryEmbedding, int topK) {
+        return searchSimilar(queryEmbedding, topK, null, null);
     }
 
     public List<ChunkSearchResult> searchSimilar(float[] queryEmbedding, int topK, String category) {
+        return searchSimilar(queryEmbedding, topK, category, null);
+    }
+
+    public List<ChunkSearchResult> searchSimilar(float[] queryEmbedding, int topK, String category, SearchMode searchMode) {
+        return withContent(searchCandidates(queryEmbedding, topK, category, searchMode));
+    }
+
+    /**
+     * First retrieval phase: ranked (id, document, chunk index, similarity) without chunk text, so candidate pools
+     * can be fused or re-ranked before any content crosses the wire. Pair with {@link #withContent(List)}.
+     */
+    public List<ChunkSearchResult> searchCandidates(float[] queryEmbedding, int topK, String category, SearchMode searchMode) {
         if (queryEmbedding == null || queryEmbedding.length == 0) {
             return List.of();
         }
-        String key = cacheKey(queryEmbedding, topK, category);
-        if (cacheEnabled) {
-            List<ChunkSearchResult> cached = getCached(key);
+        SearchMode mode = resolveSearchMode(searchMode);
+        // The version is read before searching and is part of the key: a search that overlaps persistChunks can
+        // only store its (possibly stale) result under the old version, which no later lookup asks for.
+        CacheKey key = cache == null ? null : cacheKey(queryEmbedding, topK, category, mode, corpusVersion.get());
+        if (cache != null) {
+            List<ChunkSearchResult> cached = cache.get(key);
             if (cached != null) {
                 return cached;
             }
@@ -166,68 +425,358 @@ public class VectorStoreService {
         if (filterByCategory) {
             log.info("Vector search with category filter: {}", category);
         }
-        String sql = "SELECT c.id, c.document_id, c.chunk_index, c.content, (c.embedding <-> ?::vector) AS distance "
-                + "FROM chunks c "
-                + (filterByCategory ? "JOIN documents d ON d.id = c.document_id " : "")
-                + (filterByCategory ? "WHERE d.category = ? " : "")
-                + "ORDER BY c.embedding <-> ?::vector LIMIT ?";
-        PGobject vector = pgVector(queryEmbedding);
+        boolean inMemory = activeIndex != null && activeIndex.isReady()
+                && (mode != SearchMode.EXACT || activeIndex.supportsExact());
+        List<ChunkSearchResult> results = inMemory
+                ? searchActiveIndex(queryEmbedding, topK, category, mode)
+                : searchPostgres(queryEmbedding, topK, filterByCategory ? category : null, mode);
+        sample.stop(meterRegistry.timer("rag.vector.search", "mode", mode.key(), "backend", inMemory ? activeIndex.name() : "postgres"));
+        if (cache != null) {
+            cache.put(key, results);
+        }
+        return results;
+    }
+
+    /**
+     * Second retrieval phase: fills in the text of results that do not carry it yet, in one lookup.
+     * Results whose chunk has disappeared in between are dropped.
+     */
+    public List<ChunkSearchResult> withContent(List<ChunkSearchResult> results) {
+        List<UUID> missing = results.stream()
+                .filter(result -> result.content() == null)
+                .map(ChunkSearchResult::chunkId)
+                .toList();
+        if (missing.isEmpty()) {
+            return results;
+        }
+        Map<UUID, String> contents = contentStore.load(missing);
+        List<ChunkSearchResult> hydrated = new ArrayList<>(results.size());
+        for (ChunkSearchResult result : results) {
+            if (result.content() != null) {
+                hydrated.add(result);
+                continue;
+            }
+            String content = contents.get(result.chunkId());
+            if (content != null) {
+                hydrated.add(result.withContent(content));
+            }
+        }
+        return hydrated;
+    }
+
+    /**
+     * Widens each hit to chunk_index +/- window from the same document, with every neighbor fetched in one set-based
+     * query (served by idx_chunks_document_id). Neighbors are added ring by ring in hit rank order until
+     * maxAddedBytes of UTF-8 text is spent; windows that touch or overlap are merged into one result carrying the
+     * joined text and the id, index and similarity of its best hit. Results without content pass through unchanged.
+     * Text repeated across adjacent chunks by rag.chunk.overlap appears once in the joined passage.
+     */
+    public List<ChunkSearchResult> expandContext(List<ChunkSearchResult> hits, int window, int maxAddedBytes) {
+        if (hits.isEmpty() || window <= 0 || maxAddedBytes <= 0) {
+            return hits;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<Position, String> neighbors = loadNeighbors(hits, window);
+        Map<Position, String> included = new HashMap<>();
+        Map<Position, Integer> hitRanks = new HashMap<>();
+        for (int rank = 0; rank < hits.size(); rank++) {
+            ChunkSearchResult hit = hits.get(rank);
+            Position position = new Position(hit.documentId(), hit.chunkIndex());
+            if (hit.content() != null && !hitRanks.containsKey(position)) {
+                hitRanks.put(position, rank);
+                included.put(position, hit.content());
+            }
+        }
+        long addedBytes = 0;
+        for (int distance = 1; distance <= window; distance++) {
+            for (ChunkSearchResult hit : hits) {
+                for (int side : new int[] {-1, 1}) {
+                    Position position = new Position(hit.documentId(), hit.chunkIndex() + side * distance);
+                    Position inner = new Position(hit.documentId(), hit.chunkIndex() + side * (distance - 1));
+                    String content = neighbors.get(position);
+                    // Only grow outward from text already included, so every window stays contiguous.
+                    if (content == null || included.containsKey(position) || !included.containsKey(inner)) {
+                        continue;
+                    }
+                    int bytes = content.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (addedBytes + bytes <= maxAddedBytes) {
+                        included.put(position, content);
+                        addedBytes += bytes;
+                    }
+                }
+            }
+        }
+
+        Map<UUID, TreeMap<Integer, String>> byDocument = new HashMap<>();
+        included.forEach((position, content) -> byDocument
+                .computeIfAbsent(position.documentId(), id -> new TreeMap<>())
+                .put(position.chunkIndex(), content));
+        List<RankedWindow> windows = new ArrayList<>();
+        byDocument.forEach((documentId, chunks) -> {
+            StringBuilder text = new StringBuilder();
+            int previous = Integer.MIN_VALUE;
+            int bestRank = Integer.MAX_VALUE;
+            for (Map.Entry<Integer, String> chunk : chunks.entrySet()) {
+                if (previous != Integer.MIN_VALUE && chunk.getKey() != previous + 1) {
+                    windows.add(new RankedWindow(bestRank, text.toString()));
+                    text.setLength(0);
+                    bestRank = Integer.MAX_VALUE;
+                }
+                appendChunk(text, chunk.getValue(), chunkOverlap);
+                bestRank = Math.min(bestRank, hitRanks.getOrDefault(new Position(documentId, chunk.getKey()), Integer.MAX_VALUE));
+                previous = chunk.getKey();
+            }
+            windows.add(new RankedWindow(bestRank, text.toString()));
+        });
+        windows.sort(Comparator.comparingInt(RankedWindow::rank));
+
+        List<ChunkSearchResult> expanded = new ArrayList<>(windows.size());
+        for (RankedWindow merged : windows) {
+            expanded.add(hits.get(merged.rank()).withContent(merged.text()));
+        }
+        hits.stream().filter(hit -> hit.content() == null).forEach(expanded::add);
+        meterRegistry.summary("rag.context.added-bytes").record(addedBytes);
+        sample.stop(meterRegistry.timer("rag.context.expand"));
+        return expanded;
+    }
+
+    private Map<Position, String> loadNeighbors(List<ChunkSearchResult> hits, int window) {
+        Set<Position> seen = new HashSet<>();
+        List<ChunkSearchResult> anchors = hits.stream()
+                .filter(hit -> seen.add(new Position(hit.documentId(), hit.chunkIndex())))
+                .toList();
+        Map<Shard, List<ChunkSearchResult>> byShard = shardRouter.partition(anchors, ChunkSearchResult::documentId);
+        Map<Position, String> neighbors = new HashMap<>();
+        shardRouter.gather("context", byShard.keySet(), shard -> {
+            List<ChunkSearchResult> local = byShard.get(shard);
+            return shard.jdbcTemplate().query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                        "SELECT DISTINCT c.document_id, c.chunk_index, c.content FROM chunks c "
+                                + "JOIN unnest(?::uuid[], ?::int[], ?::int[]) AS w(document_id, lo, hi) "
+                                + "ON c.document_id = w.document_id AND c.chunk_index BETWEEN w.lo AND w.hi");
+                ps.setArray(1, connection.createArrayOf("uuid", local.stream().map(ChunkSearchResult::documentId).toArray()));
+                ps.setArray(2, connection.createArrayOf("int4", local.stream().map(hit -> hit.chunkIndex() - window).toArray()));
+                ps.setArray(3, connection.createArrayOf("int4", local.stream().map(hit -> hit.chunkIndex() + window).toArray()));
+                return ps;
+            }, (rs, rowNum) -> Map.entry(new Position((UUID) rs.getObject("document_id"), rs.getInt("chunk_index")),
+                    rs.getString("content")));
+        }).forEach(rows -> rows.forEach(row -> neighbors.put(row.getKey(), row.getValue())));
+        return neighbors;
+    }
+
+    /**
+     * Stored embeddings for the given chunks in one lookup (chunks without an embedding are absent).
+     */
+    public Map<UUID, float[]> embeddingsFor(List<UUID> chunkIds) {
+        return corpusLoader.embeddingsFor(chunkIds);
+    }
+
+    List<ChunkSearchResult> searchPostgres(float[] queryEmbedding, int topK, String category, SearchMode mode) {
+        return searchPostgres(queryEmbedding, topK, category, mode, "embedding");
+    }
+
+    /**
+     * Searches the given embedding column; anything other than "embedding" is a migration shadow column that is
+     * only read by VectorEvaluationService, so it skips the prefix pass (it has no prefix index).
+     */
+    List<ChunkSearchResult> searchPostgres(float[] queryEmbedding, int topK, String category, SearchMode mode,
+                                           String column) {
+        boolean filterByCategory = category != null;
+        // Exact mode always sorts on the full vector; a prefix pass would only add approximation error.
+        boolean prefixPass = prefixDimensions > 0 && prefixDimensions < queryEmbedding.length
+                && mode != SearchMode.EXACT && "embedding".equals(column);
+        int candidates = prefixPass ? topK * prefixOversample : topK;
+        // The category is inlined as a literal, not bound: the planner can only match a per-category partial
+        // ANN index (see VectorIndexService) when the predicate value is known at plan time.
+        String where = "WHERE c." + column + " IS NOT NULL "
+                + (filterByCategory ? "AND c.category = " + sqlLiteral(category) + " " : "");
+        PgVector orderBy = new PgVector(prefixPass ? normalizedPrefix(queryEmbedding, prefixDimensions) : queryEmbedding);
+        PgVector vector = new PgVector(queryEmbedding);
         RowMapper<ChunkSearchResult> mapper = (rs, rowNum) -> {
             double distance = rs.getDouble("distance");
+            // Convert pgvector distance into a human-friendly similarity score within (0,1].
             double similarity = 1 / (1 + distance);
             return new ChunkSearchResult(
                     (UUID) rs.getObject("id"),
                     (UUID) rs.getObject("document_id"),
                     rs.getInt("chunk_index"),
-                    rs.getString("content"),
+                    null,
                     similarity);
         };
 
-        List<ChunkSearchResult> results = jdbcTemplate.query(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql);
-            int idx = 1;
-            ps.setObject(idx++, vector);
-            if (filterByCategory) {
-                ps.setString(idx++, category);
+        // SET LOCAL only lives until commit, so the planner settings for this mode never leak into the pool.
+        // With several shards each one returns its own top-k and the lists are merged here; statement_timeout
+        // cancels a straggler server-side once the router has stopped waiting for it.
+        List<List<ChunkSearchResult>> perShard = shardRouter.gather("vector-search",
+                shard -> shard.readOnlyTransaction().execute(status -> {
+                    // The query vector is cast to the shard's column type (vector or halfvec) so its index applies.
+                    String type = "embedding".equals(column) ? vectorStorage.typeOf(shard) : VectorStorage.HALFVEC;
+                    String sql = searchSql(column, type, where, prefixPass);
+                    searchSettings.get(mode).forEach(shard.jdbcTemplate()::execute);
+                    if (prefixPass && candidates > efSearch.get(mode)) {
+                        // HNSW returns at most ef_search rows, so the candidate pool must fit in it.
+                        shard.jdbcTemplate().execute("SET LOCAL hnsw.ef_search = " + candidates);
+                    }
+                    if (shardRouter.isSharded()) {
+                        shard.jdbcTemplate().execute("SET LOCAL statement_timeout = " + shardRouter.timeoutMillis());
+                    }
+                    return shard.jdbcTemplate().query(connection -> {
+                        PreparedStatement ps = connection.prepareStatement(sql);
+                        int idx = 1;
+                        ps.setObject(idx++, vector);
+                        ps.setObject(idx++, orderBy);
+                        ps.setInt(idx++, candidates);
+                        if (prefixPass) {
+                            ps.setInt(idx, topK);
+                        }
+                        return ps;
+                    }, mapper);
+                }));
+        return ShardRouter.mergeTopK(perShard, ChunkSearchResult::similarity, topK);
+    }
+
+    // The "<->" operator performs pgvector Euclidean (L2) distance; smaller values mean more similar.
+    private String searchSql(String column, String type, String where, boolean prefixPass) {
+        String distance = "(c." + column + " " + DISTANCE_OPERATOR + " " + VectorStorage.parameter(type, 0) + ")";
+        if (!prefixPass) {
+            return "SELECT c.id, c.document_id, c.chunk_index, " + distance + " AS distance FROM chunks c " + where
+                    + "ORDER BY c." + column + " " + DISTANCE_OPERATOR + " " + VectorStorage.parameter(type, 0) + " LIMIT ?";
+        }
+        // Two stages in one round trip: the inner query walks the small prefix index for candidates, the outer one
+        // re-ranks them by full-dimension distance.
+        return "SELECT id, document_id, chunk_index, distance FROM ("
+                + "SELECT c.id, c.document_id, c.chunk_index, " + distance + " AS distance FROM chunks c " + where
+                + "ORDER BY " + prefixExpression("c." + column, prefixDimensions, type) + " " + DISTANCE_OPERATOR + " "
+                + VectorStorage.parameter(type, prefixDimensions) + " LIMIT ?) candidates "
+                + "ORDER BY distance LIMIT ?";
+    }
+
+    /**
+     * SQL for the renormalized leading dimensions of a stored embedding. VectorIndexService builds the prefix
+     * index on exactly this expression, so the two must stay in sync for the planner to use it.
+     */
+    public static String prefixExpression(String column, int dimensions, String type) {
+        return "(l2_normalize(subvector(" + column + ", 1, " + dimensions + "))::" + type + "(" + dimensions + "))";
+    }
+
+    /**
+     * Client-side twin of {@link #prefixExpression}: text-embedding-3 vectors keep their meaning when truncated,
+     * but only once rescaled to unit length.
+     */
+    static float[] normalizedPrefix(float[] embedding, int dimensions) {
+        float[] prefix = Arrays.copyOf(embedding, dimensions);
+        double norm = Math.sqrt(VectorMath.dot(prefix, prefix));
+        if (norm > 0) {
+            for (int i = 0; i < prefix.length; i++) {
+                prefix[i] = (float) (prefix[i] / norm);
             }
-            ps.setObject(idx++, vector);
-            ps.setInt(idx, topK);
-            return ps;
-        }, mapper);
-        sample.stop(searchTimer);
-        if (cacheEnabled) {
-            putCached(key, results);
+        }
+        return prefix;
+    }
+
+    VectorIndex activeIndex() {
+        return activeIndex;
+    }
+
+    private List<ChunkSearchResult> searchActiveIndex(float[] queryEmbedding, int topK, String category, SearchMode mode) {
+        List<VectorHit> hits = activeIndex.search(queryEmbedding, topK, category, mode);
+        List<ChunkSearchResult> results = new ArrayList<>(hits.size());
+        for (VectorHit hit : hits) {
+            results.add(new ChunkSearchResult(hit.chunkId(), hit.documentId(), hit.chunkIndex(), null,
+                    1 / (1 + hit.distance())));
         }
         return results;
     }
 
-    private String cacheKey(float[] vector, int topK, String category) {
-        ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES * vector.length + Integer.BYTES + 64);
-        for (float v : vector) {
-            buffer.putFloat(v);
+    private static List<String> settingsFor(int efSearch, int probes, String iterativeScan) {
+        List<String> settings = new ArrayList<>();
+        settings.add("SET LOCAL hnsw.ef_search = " + efSearch);
+        settings.add("SET LOCAL ivfflat.probes = " + probes);
+        if (iterativeScan != null && !iterativeScan.isBlank()) {
+            // pgvector >= 0.8: keep scanning the index until enough rows survive the category filter.
+            String value = iterativeScan.trim().replaceAll("[^a-z_]", "");
+            settings.add("SET LOCAL hnsw.iterative_scan = " + value);
+            settings.add("SET LOCAL ivfflat.iterative_scan = " + value);
+        }
+        return settings;
+    }
+
+    /**
+     * Quotes a value as a standard-conforming SQL string literal.
+     */
+    static String sqlLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    static byte[] contentHash(String content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(
+                    (content == null ? "" : content).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static CacheKey cacheKey(float[] vector, int topK, String category, SearchMode mode, long version) {
+        return CacheKey.builder()
+                .putFloats(vector)
+                .putInt(topK)
+                .putInt(mode.ordinal())
+                .putString(category)
+                .putLong(version)
+                .build();
+    }
+
+    /**
+     * Rough retained size of a cached result list: object headers, two UUIDs and the UTF-16 content per hit.
+     */
+    static long estimateBytes(List<ChunkSearchResult> results) {
+        long bytes = 64;
+        for (ChunkSearchResult result : results) {
+            bytes += 120 + (result.content() == null ? 0 : 40 + 2L * result.content().length());
         }
-        buffer.putInt(topK);
-        if (category != null) {
-            buffer.put(category.getBytes());
+        return bytes;
+    }
+
+    /**
+     * Appends the next chunk of a contiguous window. The chunker repeats up to rag.chunk.overlap characters of each
+     * chunk at the start of the next, so the longest suffix of the text so far that also starts the next chunk is
+     * skipped instead of duplicated; without such an overlap the chunks are joined with a space.
+     */
+    static void appendChunk(StringBuilder text, String next, int maxOverlap) {
+        if (text.isEmpty()) {
+            text.append(next);
+            return;
+        }
+        for (int length = Math.min(maxOverlap, Math.min(text.length(), next.length())); length >= MIN_JOIN_OVERLAP; length--) {
+            if (endsWithPrefix(text, next, length)) {
+                text.append(next, length, next.length());
+                return;
+            }
         }
-        return Base64.getEncoder().encodeToString(buffer.array());
+        text.append(' ').append(next);
     }
 
-    private List<ChunkSearchResult> getCached(String key) {
-        CacheEntry entry = cache.get(key);
-        long now = Instant.now().toEpochMilli();
-        if (entry == null || entry.expiresAt < now) {
-            cache.remove(key);
-            return null;
+    private static boolean endsWithPrefix(StringBuilder text, String next, int length) {
+        int offset = text.length() - length;
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(offset + i) != next.charAt(i)) {
+                return false;
+            }
         }
-        return entry.results;
+        return true;
+    }
+
+    private record Position(UUID documentId, int chunkIndex) {
     }
 
-    private void putCached(String key, List<ChunkSearchResult> results) {
-        long expiresAt = Instant.now().toEpochMilli() + cacheTtlMillis;
-        cache.put(key, new CacheEntry(results, expiresAt));
+    private record RankedWindow(int rank, String text) {
     }
 
-    private record CacheEntry(List<ChunkSearchResult> results, long expiresAt) {
+    @PreDestroy
+    public void shutdown() {
+        if (cache != null) {
+            cache.close();
+        }
     }
 }
@@ -0,0 +1,183 @@
+package com.randy.rag.service.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-heap LRU cache bounded by the estimated byte size of its values, with a TTL per entry.
+ * Keys are hashed into independently locked segments (each an access-ordered LinkedHashMap with an equal share of
+ * the byte budget), so concurrent readers rarely contend. Expired entries are also swept by a background task, so
+ * keys that are never read again do not pin memory until they are evicted.
+ * Publishes rag.cache.gets{result=hit|miss}, rag.cache.evictions{cause=size|expired}, rag.cache.size and
+ * rag.cache.bytes, all tagged with the cache name.
+ */
+public final class BoundedCache<K, V> implements AutoCloseable {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final ToLongFunction<V> weigher;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    @SuppressWarnings("unchecked")
+    public BoundedCache(String name, long maxBytes, Duration ttl, ToLongFunction<V> weigher, MeterRegistry meterRegistry) {
+        this.weigher = weigher;
+        this.ttlNanos = ttl.toNanos();
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(Math.max(1, maxBytes / SEGMENTS));
+        }
+        this.hits = meterRegistry.counter("rag.cache.gets", "cache", name, "result", "hit");
+        this.misses = meterRegistry.counter("rag.cache.gets", "cache", name, "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("rag.cache.evictions", "cache", name, "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("rag.cache.evictions", "cache", name, "cause", "expired");
+        Gauge.builder("rag.cache.size", entries, AtomicLong::get).tag("cache", name).register(meterRegistry);
+        Gauge.builder("rag.cache.bytes", bytes, AtomicLong::get).tag("cache", name).baseUnit("bytes").register(meterRegistry);
+        long sweepMillis = Math.max(1000, ttl.toMillis() / 2);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cache-expiry-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::removeExpired, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.map.get(key);
+            if (entry != null && entry.expiresAt - now <= 0) {
+                segment.map.remove(key);
+                release(segment, entry);
+                expiredEvictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        Segment<K, V> segment = segmentFor(key);
+        if (weight > segment.maxBytes) {
+            return;
+        }
+        segment.lock.lock();
+        try {
+            Entry<V> previous = segment.map.put(key, new Entry<>(value, weight, System.nanoTime() + ttlNanos));
+            if (previous != null) {
+                release(segment, previous);
+            }
+            segment.bytes += weight;
+            entries.incrementAndGet();
+            bytes.addAndGet(weight);
+            Iterator<Entry<V>> eldest = segment.map.values().iterator();
+            while (segment.bytes > segment.maxBytes && eldest.hasNext()) {
+                Entry<V> evicted = eldest.next();
+                eldest.remove();
+                release(segment, evicted);
+                sizeEvictions.increment();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.map.values().forEach(entry -> release(segment, entry));
+                segment.map.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public long size() {
+        return entries.get();
+    }
+
+    public long weightedBytes() {
+        return bytes.get();
+    }
+
+    void removeExpired() {
+        long now = System.nanoTime();
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                Iterator<Entry<V>> iterator = segment.map.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry<V> entry = iterator.next();
+                    if (entry.expiresAt - now <= 0) {
+                        iterator.remove();
+                        release(segment, entry);
+                        expiredEvictions.increment();
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    private void release(Segment<K, V> segment, Entry<V> entry) {
+        segment.bytes -= entry.weight;
+        entries.decrementAndGet();
+        bytes.addAndGet(-entry.weight);
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    private record Entry<V>(V value, long weight, long expiresAt) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.randy.rag.service.cache;
+
+/**
+ * 128-bit cache key. Two keys collide with probability ~2^-64 after 2^32 entries, far below anything a
+ * bounded in-heap cache ever holds, so the full input does not need to be kept for equality checks.
+ */
+public record CacheKey(long high, long low) {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Streaming MurmurHash3 x64/128-style hasher; inputs are packed into 64-bit words, two words per block.
+     */
+    public static final class Builder {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long h1 = 0x9368e53c2f6af274L;
+        private long h2 = 0x586dcd208f7cd3fdL;
+        private long pendingWord;
+        private boolean hasPendingWord;
+        private int pendingInt;
+        private boolean hasPendingInt;
+        private long length;
+
+        private Builder() {
+        }
+
+        public Builder putInt(int value) {
+            length += Integer.BYTES;
+            if (hasPendingInt) {
+                hasPendingInt = false;
+                word(((long) pendingInt << 32) | (value & 0xFFFFFFFFL));
+            } else {
+                pendingInt = value;
+                hasPendingInt = true;
+            }
+            return this;
+        }
+
+        public Builder putLong(long value) {
+            return putInt((int) (value >>> 32)).putInt((int) value);
+        }
+
+        public Builder putFloats(float[] values) {
+            putInt(values.length);
+            for (float value : values) {
+                putInt(Float.floatToIntBits(value));
+            }
+            return this;
+        }
+
+        public Builder putString(String value) {
+            if (value == null) {
+                return putInt(-1);
+            }
+            putInt(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                putInt(value.charAt(i));
+            }
+            return this;
+        }
+
+        public CacheKey build() {
+            if (hasPendingInt) {
+                hasPendingInt = false;
+                word((long) pendingInt << 32);
+            }
+            if (hasPendingWord) {
+                hasPendingWord = false;
+                long k1 = pendingWord * C1;
+                k1 = Long.rotateLeft(k1, 31) * C2;
+                h1 ^= k1;
+            }
+            long a = h1 ^ length;
+            long b = h2 ^ length;
+            a += b;
+            b += a;
+            a = fmix(a);
+            b = fmix(b);
+            a += b;
+            b += a;
+            return new CacheKey(a, b);
+        }
+
+        private void word(long value) {
+            if (!hasPendingWord) {
+                pendingWord = value;
+                hasPendingWord = true;
+                return;
+            }
+            hasPendingWord = false;
+            long k1 = pendingWord * C1;
+            k1 = Long.rotateLeft(k1, 31) * C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            long k2 = value * C2;
+            k2 = Long.rotateLeft(k2, 33) * C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
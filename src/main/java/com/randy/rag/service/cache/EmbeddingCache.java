@@ -0,0 +1,141 @@
+package com.randy.rag.service.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Content-addressed embedding cache keyed by (model, SHA-256 of the text). L1 is a byte-bounded in-heap LRU;
+ * L2 is one append-only memory-mapped {@link EmbeddingLogFile} per model, so embeddings survive restarts.
+ * L2 failures are logged and treated as misses; the embedding API stays the source of truth.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+    private final BoundedCache<Key, float[]> memory;
+    private final Map<String, EmbeddingLogFile> files = new ConcurrentHashMap<>();
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public EmbeddingCache(@Value("${rag.embedding-cache.enabled:true}") boolean enabled,
+                          @Value("${rag.embedding-cache.directory:./data/embedding-cache}") String directory,
+                          @Value("${rag.embedding-cache.memory-bytes:33554432}") long memoryBytes,
+                          @Value("${rag.embedding-cache.segment-bytes:67108864}") long segmentBytes,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.memory = new BoundedCache<>("embedding", memoryBytes, Duration.ofDays(365),
+                vector -> 16L + 4L * vector.length, meterRegistry);
+        this.l1Hits = meterRegistry.counter("rag.embedding.cache.lookups", "result", "l1");
+        this.l2Hits = meterRegistry.counter("rag.embedding.cache.lookups", "result", "l2");
+        this.misses = meterRegistry.counter("rag.embedding.cache.lookups", "result", "miss");
+        Gauge.builder("rag.embedding.cache.stored", files, f -> f.values().stream().mapToLong(EmbeddingLogFile::bytes).sum())
+                .baseUnit("bytes")
+                .description("Bytes in the on-disk embedding logs")
+                .register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.entries", files, f -> f.values().stream().mapToLong(EmbeddingLogFile::entries).sum())
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Key key(String model, String text) {
+        MessageDigest digest = sha256.get();
+        digest.reset();
+        return new Key(model, TextDigest.of(digest.digest(text.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    public float[] get(Key key) {
+        float[] vector = memory.get(key);
+        if (vector != null) {
+            l1Hits.increment();
+            return vector;
+        }
+        EmbeddingLogFile file = file(key.model());
+        vector = file == null ? null : file.get(key.digest());
+        if (vector != null) {
+            l2Hits.increment();
+            memory.put(key, vector);
+            return vector;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(Key key, float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return;
+        }
+        memory.put(key, vector);
+        EmbeddingLogFile file = file(key.model());
+        if (file == null) {
+            return;
+        }
+        try {
+            file.append(key.digest(), vector);
+        } catch (IOException e) {
+            log.warn("Unable to persist embedding for model {}: {}", key.model(), e.getMessage());
+        }
+    }
+
+    private EmbeddingLogFile file(String model) {
+        return files.computeIfAbsent(model, m -> {
+            Path path = directory.resolve(m.replaceAll("[^A-Za-z0-9._-]", "_") + ".emb");
+            try {
+                EmbeddingLogFile file = EmbeddingLogFile.open(path, segmentBytes);
+                log.info("Opened embedding cache {} with {} entries", path, file.entries());
+                return file;
+            } catch (IOException e) {
+                // computeIfAbsent does not store nulls, so the next lookup retries.
+                log.warn("Embedding cache {} unavailable: {}", path, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        memory.close();
+        files.values().forEach(file -> {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("Unable to close embedding cache file: {}", e.getMessage());
+            }
+        });
+    }
+
+    public record Key(String model, TextDigest digest) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.randy.rag.service.cache;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only, memory-mapped log of embeddings for one model, with an in-heap offset index keyed by text digest.
+ * Layout: a 16-byte header (magic, version, committed end offset) followed by records
+ * {@code [int dim][32-byte SHA-256][dim x float32]}, little-endian. Records never straddle a mapped segment;
+ * a dim of -1 pads the rest of a segment. The record body is forced to disk before the committed end is written,
+ * so a crash mid-append (or a power loss that drops unflushed pages) leaves the previous end in place and the
+ * partial record is overwritten on the next start. Every record must have the dimension of the first one; reads and
+ * the startup scan check it, and reads also compare the stored digest with the one asked for, so a damaged log
+ * yields misses rather than wrong vectors.
+ */
+final class EmbeddingLogFile implements AutoCloseable {
+
+    private static final int MAGIC = 0x454D4243;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int DIGEST_BYTES = 32;
+    private static final int PADDING = -1;
+
+    private final FileChannel channel;
+    private final long segmentBytes;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<TextDigest, Long> offsets = new ConcurrentHashMap<>();
+    private volatile long end;
+    private volatile int dimension;
+
+    private EmbeddingLogFile(Path file, long segmentBytes) throws IOException {
+        this.segmentBytes = segmentBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileBytes = channel.size();
+        mapSegment();
+        MappedByteBuffer first = segments.get(0);
+        long committed = first.getLong(8);
+        if (fileBytes < HEADER_BYTES || first.getInt(0) != MAGIC || first.getInt(4) != VERSION
+                || committed < HEADER_BYTES || committed > fileBytes) {
+            first.putInt(0, MAGIC);
+            first.putInt(4, VERSION);
+            first.putLong(8, HEADER_BYTES);
+            committed = HEADER_BYTES;
+        }
+        while (committed > segments.size() * segmentBytes) {
+            mapSegment();
+        }
+        this.end = committed;
+        rebuildIndex();
+    }
+
+    static EmbeddingLogFile open(Path file, long segmentBytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        // Keep segments 4-byte aligned so every int and float read is aligned.
+        return new EmbeddingLogFile(file, Math.max(1 << 16, segmentBytes & ~3L));
+    }
+
+    int entries() {
+        return offsets.size();
+    }
+
+    long bytes() {
+        return end;
+    }
+
+    float[] get(TextDigest digest) {
+        Long offset = offsets.get(digest);
+        if (offset == null) {
+            return null;
+        }
+        MappedByteBuffer segment = segments.get((int) (offset / segmentBytes));
+        int position = (int) (offset % segmentBytes);
+        int dim = segment.getInt(position);
+        if (dim != dimension || !readDigest(segment, position + Integer.BYTES).equals(digest)) {
+            offsets.remove(digest, offset);
+            return null;
+        }
+        float[] vector = new float[dim];
+        int base = position + Integer.BYTES + DIGEST_BYTES;
+        for (int i = 0; i < dim; i++) {
+            vector[i] = segment.getFloat(base + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    synchronized void append(TextDigest digest, float[] vector) throws IOException {
+        if (offsets.containsKey(digest) || (dimension != 0 && vector.length != dimension)) {
+            return;
+        }
+        long recordBytes = recordBytes(vector.length);
+        if (recordBytes > segmentBytes) {
+            return;
+        }
+        long offset = end;
+        int position = (int) (offset % segmentBytes);
+        if (position + recordBytes > segmentBytes) {
+            MappedByteBuffer padded = segments.get((int) (offset / segmentBytes));
+            padded.putInt(position, PADDING);
+            padded.force(position, Integer.BYTES);
+            offset += segmentBytes - position;
+            position = 0;
+        }
+        int segmentIndex = (int) (offset / segmentBytes);
+        while (segmentIndex >= segments.size()) {
+            mapSegment();
+        }
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        segment.putInt(position, vector.length);
+        writeDigest(segment, position + Integer.BYTES, digest);
+        int base = position + Integer.BYTES + DIGEST_BYTES;
+        for (int i = 0; i < vector.length; i++) {
+            segment.putFloat(base + i * Float.BYTES, vector[i]);
+        }
+        // Durable body first; only then may the header point past it.
+        segment.force(position, (int) recordBytes);
+        dimension = vector.length;
+        end = offset + recordBytes;
+        segments.get(0).putLong(8, end);
+        offsets.put(digest, offset);
+    }
+
+    private static long recordBytes(int dim) {
+        return Integer.BYTES + DIGEST_BYTES + (long) dim * Float.BYTES;
+    }
+
+    private void rebuildIndex() {
+        long offset = HEADER_BYTES;
+        while (offset < end) {
+            MappedByteBuffer segment = segments.get((int) (offset / segmentBytes));
+            int position = (int) (offset % segmentBytes);
+            int dim = segment.getInt(position);
+            if (dim == PADDING) {
+                offset += segmentBytes - position;
+                continue;
+            }
+            if (dim <= 0 || (dimension != 0 && dim != dimension) || position + recordBytes(dim) > segmentBytes
+                    || offset + recordBytes(dim) > end) {
+                // Unreadable tail: keep what was indexed so far and append over the rest.
+                end = offset;
+                segments.get(0).putLong(8, end);
+                return;
+            }
+            dimension = dim;
+            offsets.put(readDigest(segment, position + Integer.BYTES), offset);
+            offset += recordBytes(dim);
+        }
+    }
+
+    private static TextDigest readDigest(MappedByteBuffer segment, int position) {
+        return new TextDigest(segment.getLong(position), segment.getLong(position + 8),
+                segment.getLong(position + 16), segment.getLong(position + 24));
+    }
+
+    private static void writeDigest(MappedByteBuffer segment, int position, TextDigest digest) {
+        segment.putLong(position, digest.a());
+        segment.putLong(position + 8, digest.b());
+        segment.putLong(position + 16, digest.c());
+        segment.putLong(position + 24, digest.d());
+    }
+
+    private void mapSegment() throws IOException {
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentBytes, segmentBytes);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segments.add(segment);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,211 @@
+package com.randy.rag.service.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.model.QueryResponse;
+import com.randy.rag.model.RetrievalMode;
+import com.randy.rag.model.SearchMode;
+import com.randy.rag.service.vector.HnswGraph;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Reuses final answers for near-duplicate questions. Each scope (category plus every resolved retrieval option, see
+ * {@link ScopeKey}) keeps a small HNSW graph of unit-normalized query embeddings; a new query whose nearest cached query is within the cosine threshold gets
+ * the stored response without a chat completion. Everything is dropped when the corpus version changes.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private static final int HNSW_M = 12;
+    private static final int HNSW_EF = 64;
+    private static final int CANDIDATES = 4;
+
+    private final boolean enabled;
+    private final float maxDistanceSquared;
+    private final int maxEntriesPerScope;
+    private final long ttlNanos;
+    private final Map<ScopeKey, Scope> scopes = new ConcurrentHashMap<>();
+    private final AtomicLong entries = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer savedLatency;
+    private volatile long corpusVersion = Long.MIN_VALUE;
+
+    public SemanticAnswerCache(@Value("${rag.semantic-cache.enabled:true}") boolean enabled,
+                               @Value("${rag.semantic-cache.min-cosine:0.97}") double minCosine,
+                               @Value("${rag.semantic-cache.max-entries-per-scope:10000}") int maxEntriesPerScope,
+                               @Value("${rag.semantic-cache.ttl-seconds:3600}") long ttlSeconds,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        // For unit vectors |a - b|^2 = 2 - 2cos(a, b), so the cosine threshold maps onto the graph's L2 metric.
+        this.maxDistanceSquared = (float) (2 - 2 * minCosine);
+        this.maxEntriesPerScope = Math.max(1, maxEntriesPerScope);
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.hits = meterRegistry.counter("rag.semantic-cache.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("rag.semantic-cache.lookups", "result", "miss");
+        this.savedLatency = Timer.builder("rag.semantic-cache.saved-llm-latency")
+                .description("Chat completion time avoided by answering from the semantic cache")
+                .register(meterRegistry);
+        Gauge.builder("rag.semantic-cache.entries", entries, AtomicLong::get).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Everything that changes which chunks reach the prompt; answers are only shared between requests that agree on
+     * all of it. Values are the resolved ones (defaults applied), so an explicit default and an omitted option match.
+     */
+    public record ScopeKey(String category, int topK, SearchMode searchMode, RetrievalMode retrieval,
+                           double mmrLambda, int contextWindow) {
+
+        public ScopeKey {
+            category = category == null || category.isBlank() ? "" : category;
+        }
+    }
+
+    public Optional<QueryResponse> lookup(float[] queryEmbedding, ScopeKey scopeKey, long currentCorpusVersion) {
+        if (!enabled || queryEmbedding == null || queryEmbedding.length == 0) {
+            return Optional.empty();
+        }
+        syncVersion(currentCorpusVersion);
+        Scope scope = scopes.get(scopeKey);
+        Optional<Entry> match = scope == null ? Optional.empty() : scope.nearest(normalize(queryEmbedding));
+        if (match.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        savedLatency.record(match.get().llmNanos, TimeUnit.NANOSECONDS);
+        return Optional.of(match.get().response);
+    }
+
+    /**
+     * Stores an answer built from retrieval at currentCorpusVersion; dropped if the corpus has moved on since.
+     */
+    public void store(float[] queryEmbedding, ScopeKey scopeKey, long currentCorpusVersion,
+                      QueryResponse response, long llmNanos) {
+        if (!enabled || queryEmbedding == null || queryEmbedding.length == 0) {
+            return;
+        }
+        syncVersion(currentCorpusVersion);
+        float[] unit = normalize(queryEmbedding);
+        // Under the same monitor as the version bump, so an answer cannot land after the invalidation it predates.
+        synchronized (this) {
+            if (corpusVersion != currentCorpusVersion) {
+                return;
+            }
+            scopes.computeIfAbsent(scopeKey, key -> new Scope(queryEmbedding.length))
+                    .add(unit, new Entry(response, llmNanos, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidateAll() {
+        scopes.clear();
+        entries.set(0);
+    }
+
+    /**
+     * Moves the cache forward to currentCorpusVersion, dropping older answers; never moves it back.
+     */
+    private void syncVersion(long currentCorpusVersion) {
+        if (corpusVersion < currentCorpusVersion) {
+            synchronized (this) {
+                if (corpusVersion < currentCorpusVersion) {
+                    invalidateAll();
+                    corpusVersion = currentCorpusVersion;
+                }
+            }
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float scale = norm == 0 ? 0f : (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    private final class Scope {
+
+        private final int dim;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private HnswGraph graph;
+        private final List<Entry> entriesByNode = new ArrayList<>();
+
+        Scope(int dim) {
+            this.dim = dim;
+            this.graph = new HnswGraph(dim, HNSW_M, HNSW_EF, 256);
+        }
+
+        Optional<Entry> nearest(float[] query) {
+            if (query.length != dim) {
+                return Optional.empty();
+            }
+            lock.readLock().lock();
+            try {
+                float[] distances = new float[CANDIDATES];
+                int[] nodes = graph.search(query, CANDIDATES, HNSW_EF, null, distances);
+                long now = System.nanoTime();
+                for (int i = 0; i < nodes.length; i++) {
+                    if (distances[i] > maxDistanceSquared) {
+                        break;
+                    }
+                    Entry entry = entriesByNode.get(nodes[i]);
+                    if (entry.expiresAt - now > 0) {
+                        return Optional.of(entry);
+                    }
+                }
+                return Optional.empty();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void add(float[] query, Entry entry) {
+            if (query.length != dim) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (entriesByNode.size() >= maxEntriesPerScope) {
+                    // HNSW has no deletes; a full scope starts over rather than tracking per-node liveness.
+                    entries.addAndGet(-entriesByNode.size());
+                    entriesByNode.clear();
+                    graph = new HnswGraph(dim, HNSW_M, HNSW_EF, 256);
+                }
+                graph.add(query);
+                entriesByNode.add(entry);
+                entries.incrementAndGet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private record Entry(QueryResponse response, long llmNanos, long expiresAt) {
+    }
+}
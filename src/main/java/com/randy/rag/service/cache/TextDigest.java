@@ -0,0 +1,14 @@
+package com.randy.rag.service.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SHA-256 of a text as four longs, so it can be used as a hash key and stored without a byte[] per entry.
+ */
+public record TextDigest(long a, long b, long c, long d) {
+
+    static TextDigest of(byte[] sha256) {
+        ByteBuffer buffer = ByteBuffer.wrap(sha256);
+        return new TextDigest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,292 @@
+package com.randy.rag.service.lexical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.model.ChunkSearchResult;
+import com.randy.rag.service.vector.ChunkRowTable;
+import com.randy.rag.service.vector.FloatIntHeap;
+import com.randy.rag.service.vector.IndexedVector;
+import com.randy.rag.service.vector.VectorHit;
+
+/**
+ * JVM-resident inverted index over chunk text with BM25 scoring. Rows are dense ints shared with a
+ * {@link ChunkRowTable}; postings are delta + varint compressed ({@link PostingList}), and top-k evaluation uses
+ * MaxScore: terms whose summed score upper bounds cannot beat the current k-th score only probe the documents
+ * the remaining terms produce. Only ids are kept per row: results carry no text, which
+ * VectorStoreService#withContent loads for the fused top-k, as it does for the Postgres lexical leg.
+ */
+@Component
+public class Bm25Index {
+
+    private static final Logger log = LoggerFactory.getLogger(Bm25Index.class);
+
+    private static final int MAX_QUERY_TERMS = 32;
+
+    private final float k1;
+    private final float b;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object writeMutex = new Object();
+
+    private volatile Snapshot snapshot;
+    private List<ChunkText> pendingDuringRebuild;
+
+    public Bm25Index(@Value("${rag.lexical.bm25.k1:1.2}") float k1,
+                     @Value("${rag.lexical.bm25.b:0.75}") float b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.rows.liveCount();
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        Snapshot current = snapshot;
+        description.put("ready", current != null);
+        if (current != null) {
+            lock.readLock().lock();
+            try {
+                long postingBytes = 0;
+                long postings = 0;
+                for (PostingList list : current.postings.values()) {
+                    postingBytes += list.bytes();
+                    postings += list.count();
+                }
+                description.put("chunks", current.rows.liveCount());
+                description.put("terms", current.postings.size());
+                description.put("postings", postings);
+                description.put("postingBytes", postingBytes);
+                description.put("bytesPerPosting", postings == 0 ? 0 : (double) postingBytes / postings);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return description;
+    }
+
+    public void rebuild(ChunkTextLoader loader) {
+        synchronized (writeMutex) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        Snapshot built = new Snapshot(loader.count());
+        loader.forEach(built::append);
+        synchronized (writeMutex) {
+            pendingDuringRebuild.forEach(built::append);
+            pendingDuringRebuild = null;
+            lock.writeLock().lock();
+            try {
+                snapshot = built;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("BM25 index rebuilt with {} chunks and {} terms in {} ms", built.rows.liveCount(),
+                built.postings.size(), System.currentTimeMillis() - start);
+    }
+
+    public void add(List<ChunkText> chunks) {
+        synchronized (writeMutex) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.addAll(chunks);
+                if (snapshot == null) {
+                    // The first load is still streaming: an index of just these chunks would make isReady() true
+                    // and answer the lexical leg from them alone. The rebuild appends them before it swaps in.
+                    return;
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (snapshot == null) {
+                    snapshot = new Snapshot(chunks.size());
+                }
+                chunks.forEach(snapshot::append);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Top-k chunks by BM25, without content; similarity carries the raw BM25 score.
+     */
+    public List<ChunkSearchResult> search(String queryText, int topK, String category) {
+        Set<String> terms = TextTokenizer.distinctTerms(queryText, MAX_QUERY_TERMS);
+        if (terms.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return List.of();
+            }
+            int filter = current.rows.categoryFilter(category);
+            if (filter == -2) {
+                return List.of();
+            }
+            return current.search(terms, topK, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private final class Snapshot {
+
+        private final ChunkRowTable rows;
+        private final Map<String, PostingList> postings = new HashMap<>();
+        private int[] docLengths;
+        private long liveLength;
+
+        Snapshot(int expected) {
+            int capacity = Math.max(expected, 16);
+            this.rows = new ChunkRowTable(capacity);
+            this.docLengths = new int[capacity];
+        }
+
+        void append(ChunkText chunk) {
+            if (chunk.content() == null) {
+                return;
+            }
+            int previous = rows.rowOf(chunk.chunkId());
+            if (previous >= 0 && rows.isLive(previous)) {
+                liveLength -= docLengths[previous];
+            }
+            int row = rows.append(new IndexedVector(chunk.chunkId(), chunk.documentId(), chunk.chunkIndex(),
+                    chunk.category(), null));
+            if (row >= docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, Math.max(row + 1, docLengths.length * 2));
+            }
+            List<String> tokens = TextTokenizer.tokens(chunk.content());
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            docLengths[row] = tokens.size();
+            liveLength += tokens.size();
+            frequencies.forEach((term, tf) ->
+                    postings.computeIfAbsent(term, t -> new PostingList()).append(row, tf, tokens.size()));
+        }
+
+        List<ChunkSearchResult> search(Set<String> terms, int topK, int filter) {
+            int live = Math.max(1, rows.liveCount());
+            float averageLength = Math.max(1f, (float) liveLength / live);
+            List<TermScorer> scorers = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list != null && list.count() > 0) {
+                    scorers.add(new TermScorer(list, live, averageLength));
+                }
+            }
+            if (scorers.isEmpty()) {
+                return List.of();
+            }
+            scorers.sort((x, y) -> Float.compare(x.upperBound, y.upperBound));
+            int n = scorers.size();
+            float[] prefixBound = new float[n];
+            float running = 0f;
+            for (int i = 0; i < n; i++) {
+                running += scorers.get(i).upperBound;
+                prefixBound[i] = running;
+            }
+
+            // Max-heap on negated scores == min-heap on scores; the root is the current k-th best.
+            FloatIntHeap top = FloatIntHeap.maxHeap(topK + 1);
+            float threshold = 0f;
+            int firstEssential = 0;
+            while (firstEssential < n) {
+                int row = PostingList.END;
+                for (int i = firstEssential; i < n; i++) {
+                    row = Math.min(row, scorers.get(i).cursor.row());
+                }
+                if (row == PostingList.END) {
+                    break;
+                }
+                if (!rows.matches(row, filter)) {
+                    for (int i = firstEssential; i < n; i++) {
+                        scorers.get(i).cursor.advance(row + 1);
+                    }
+                    continue;
+                }
+                float score = 0f;
+                for (int i = firstEssential; i < n; i++) {
+                    TermScorer scorer = scorers.get(i);
+                    if (scorer.cursor.row() == row) {
+                        score += scorer.score(scorer.cursor.tf(), docLengths[row]);
+                        scorer.cursor.next();
+                    }
+                }
+                boolean full = top.size() >= topK;
+                for (int i = firstEssential - 1; i >= 0; i--) {
+                    if (full && score + prefixBound[i] <= threshold) {
+                        break;
+                    }
+                    TermScorer scorer = scorers.get(i);
+                    scorer.cursor.advance(row);
+                    if (scorer.cursor.row() == row) {
+                        score += scorer.score(scorer.cursor.tf(), docLengths[row]);
+                    }
+                }
+                if (!full || score > threshold) {
+                    top.offer(-score, row, topK);
+                    if (top.size() >= topK) {
+                        threshold = -top.peekKey();
+                        while (firstEssential < n && prefixBound[firstEssential] <= threshold) {
+                            firstEssential++;
+                        }
+                    }
+                }
+            }
+
+            float[] negatedScores = new float[top.size()];
+            int[] ranked = top.drainAscending(negatedScores);
+            List<ChunkSearchResult> results = new ArrayList<>(ranked.length);
+            for (int i = 0; i < ranked.length; i++) {
+                VectorHit hit = rows.hit(ranked[i], 0);
+                results.add(new ChunkSearchResult(hit.chunkId(), hit.documentId(), hit.chunkIndex(),
+                        null, -negatedScores[i]));
+            }
+            return results;
+        }
+    }
+
+    private final class TermScorer {
+
+        private final PostingList.Cursor cursor;
+        private final float idf;
+        private final float averageLength;
+        private final float upperBound;
+
+        TermScorer(PostingList list, int documents, float averageLength) {
+            this.cursor = list.cursor();
+            this.averageLength = averageLength;
+            this.idf = (float) Math.log(1 + (documents - list.count() + 0.5) / (list.count() + 0.5));
+            // BM25 grows with tf and shrinks with length, so max tf at the shortest length bounds every posting.
+            this.upperBound = score(list.maxTf(), list.minDocLength());
+        }
+
+        float score(int tf, int docLength) {
+            float norm = k1 * (1 - b + b * docLength / averageLength);
+            return idf * tf * (k1 + 1) / (tf + norm);
+        }
+    }
+}
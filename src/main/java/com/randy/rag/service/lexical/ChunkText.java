@@ -0,0 +1,6 @@
+package com.randy.rag.service.lexical;
+
+import java.util.UUID;
+
+public record ChunkText(UUID chunkId, UUID documentId, int chunkIndex, String category, String content) {
+}
@@ -0,0 +1,58 @@
+package com.randy.rag.service.lexical;
+
+import java.sql.PreparedStatement;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+
+/**
+ * Streams chunk text (with its category) out of Postgres to rebuild the in-memory lexical index.
+ */
+@Component
+public class ChunkTextLoader {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final ShardRouter shardRouter;
+
+    public ChunkTextLoader(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    public int count() {
+        int total = 0;
+        for (Shard shard : shardRouter.shards()) {
+            Integer count = shard.jdbcTemplate().queryForObject("SELECT COUNT(1) FROM chunks WHERE duplicate_of IS NULL", Integer.class);
+            total += count == null ? 0 : count;
+        }
+        return total;
+    }
+
+    public void forEach(Consumer<ChunkText> consumer) {
+        for (Shard shard : shardRouter.shards()) {
+            forEach(shard, consumer);
+        }
+    }
+
+    private void forEach(Shard shard, Consumer<ChunkText> consumer) {
+        // PgJDBC only honours the fetch size (server-side cursor) inside a transaction.
+        shard.readOnlyTransaction().executeWithoutResult(status -> shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT c.id, c.document_id, c.chunk_index, c.content, c.category "
+                            + "FROM chunks c WHERE c.duplicate_of IS NULL");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(new ChunkText(
+                    (UUID) rs.getObject("id"),
+                    (UUID) rs.getObject("document_id"),
+                    rs.getInt("chunk_index"),
+                    rs.getString("category"),
+                    rs.getString("content")));
+        }));
+    }
+}
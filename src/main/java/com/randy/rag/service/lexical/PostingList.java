@@ -0,0 +1,142 @@
+package com.randy.rag.service.lexical;
+
+import java.util.Arrays;
+
+/**
+ * Append-only postings for one term: (row delta, term frequency) pairs as varints in a single byte[], with a skip
+ * entry every {@value #BLOCK} postings so cursors can jump over whole blocks. Rows must be appended in increasing
+ * order, which holds because the index assigns rows sequentially.
+ * Also tracks the per-term statistics the BM25 upper bound needs (max tf, shortest document).
+ */
+final class PostingList {
+
+    static final int END = Integer.MAX_VALUE;
+    private static final int BLOCK = 128;
+
+    private byte[] data = new byte[16];
+    private int length;
+    private int count;
+    private int lastRow = -1;
+    private int maxTf;
+    private int minDocLength = Integer.MAX_VALUE;
+    private int[] skipBase = new int[0];
+    private int[] skipOffset = new int[0];
+    private int skips;
+
+    void append(int row, int tf, int docLength) {
+        if (count % BLOCK == 0) {
+            if (skips == skipBase.length) {
+                skipBase = Arrays.copyOf(skipBase, Math.max(4, skips * 2));
+                skipOffset = Arrays.copyOf(skipOffset, Math.max(4, skips * 2));
+            }
+            skipBase[skips] = lastRow;
+            skipOffset[skips] = length;
+            skips++;
+        }
+        writeVarint(row - lastRow);
+        writeVarint(tf);
+        lastRow = row;
+        count++;
+        maxTf = Math.max(maxTf, tf);
+        minDocLength = Math.min(minDocLength, docLength);
+    }
+
+    int count() {
+        return count;
+    }
+
+    int maxTf() {
+        return maxTf;
+    }
+
+    int minDocLength() {
+        return minDocLength;
+    }
+
+    long bytes() {
+        return length + 8L * skips;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void writeVarint(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + 5, data.length * 2));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    final class Cursor {
+
+        private final byte[] bytes = data;
+        private final int end = length;
+        private final int postings = count;
+        private int position;
+        private int consumed;
+        private int row = -1;
+        private int tf;
+
+        Cursor() {
+            next();
+        }
+
+        int row() {
+            return row;
+        }
+
+        int tf() {
+            return tf;
+        }
+
+        void next() {
+            if (consumed == postings || position >= end) {
+                row = END;
+                return;
+            }
+            row += readVarint();
+            tf = readVarint();
+            consumed++;
+        }
+
+        /**
+         * Moves to the first posting with row >= target.
+         */
+        void advance(int target) {
+            if (row >= target) {
+                return;
+            }
+            int block = consumed / BLOCK;
+            int jump = block;
+            while (jump + 1 < skips && skipBase[jump + 1] < target) {
+                jump++;
+            }
+            if (jump > block) {
+                position = skipOffset[jump];
+                row = skipBase[jump];
+                consumed = jump * BLOCK;
+                next();
+            }
+            while (row < target) {
+                next();
+            }
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
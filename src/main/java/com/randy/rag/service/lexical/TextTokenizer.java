@@ -0,0 +1,69 @@
+package com.randy.rag.service.lexical;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lower-cased runs of letters, digits and underscores; no stemming, so names and codes match verbatim.
+ * Mirrors the 'simple' text search configuration used by chunks.content_tsv. That configuration keeps stopwords,
+ * so query terms drop them here: OR-ed, a single "the" or "what" would otherwise match nearly every chunk.
+ */
+public final class TextTokenizer {
+
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}_]+");
+
+    // Postgres' english.stop list.
+    private static final Set<String> STOPWORDS = Set.of(
+            "i", "me", "my", "myself", "we", "our", "ours", "ourselves", "you", "your", "yours", "yourself",
+            "yourselves", "he", "him", "his", "himself", "she", "her", "hers", "herself", "it", "its", "itself",
+            "they", "them", "their", "theirs", "themselves", "what", "which", "who", "whom", "this", "that", "these",
+            "those", "am", "is", "are", "was", "were", "be", "been", "being", "have", "has", "had", "having", "do",
+            "does", "did", "doing", "a", "an", "the", "and", "but", "if", "or", "because", "as", "until", "while",
+            "of", "at", "by", "for", "with", "about", "against", "between", "into", "through", "during", "before",
+            "after", "above", "below", "to", "from", "up", "down", "in", "out", "on", "off", "over", "under",
+            "again", "further", "then", "once", "here", "there", "when", "where", "why", "how", "all", "any", "both",
+            "each", "few", "more", "most", "other", "some", "such", "no", "nor", "not", "only", "own", "same", "so",
+            "than", "too", "very", "s", "t", "can", "will", "just", "don", "should", "now");
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = TERM.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    /**
+     * Distinct query terms in order of appearance, stopwords excluded; empty when nothing selective is left.
+     */
+    public static Set<String> distinctTerms(String text, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        Matcher matcher = TERM.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find() && terms.size() < limit) {
+            String term = matcher.group();
+            if (!isStopword(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    public static boolean isStopword(String term) {
+        return STOPWORDS.contains(term);
+    }
+}
@@ -0,0 +1,26 @@
+package com.randy.rag.service.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One Postgres instance holding a slice of the chunks table. Shard 0 is the primary spring.datasource, which also
+ * keeps the documents, categories and knowledge-graph tables. Shards are identified by index alone, so the
+ * timeout-bounded view ShardRouter.gather hands to queries still works as a key into maps built from shards().
+ */
+public record Shard(int index, String name, JdbcTemplate jdbcTemplate, TransactionTemplate readOnlyTransaction) {
+
+    public boolean isPrimary() {
+        return index == 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Shard shard && shard.index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(index);
+    }
+}
@@ -0,0 +1,280 @@
+package com.randy.rag.service.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.randy.rag.config.PgVectorDataSource;
+import com.randy.rag.service.vector.FloatIntHeap;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Spreads the chunks table over the primary DataSource plus the JDBC URLs in rag.shards.urls. A chunk lives on the
+ * shard picked by its document_id hash, so a document's chunks stay together; reads that are not keyed by document
+ * fan out to every shard in parallel. Each shard gets rag.shards.timeout-ms; a shard that times out or fails is
+ * left out of the result (rag.shard.failures, rag.shard.partial) unless every shard failed. Fanned-out queries
+ * run through a JdbcTemplate whose statements carry that timeout too, so the server cancels a straggler instead of
+ * letting it hold a connection after the router has stopped waiting.
+ * Per-shard latency is published as the rag.shard.query{operation,shard} histogram so stragglers stand out.
+ * The shard count must not change once chunks are stored: assignment is a plain modulo.
+ */
+@Component
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final List<Shard> boundedShards = new ArrayList<>();
+    private final List<HikariDataSource> ownedDataSources = new ArrayList<>();
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+
+    public ShardRouter(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${rag.shards.urls:}") String urls,
+                       @Value("${spring.datasource.username:}") String username,
+                       @Value("${spring.datasource.password:}") String password,
+                       @Value("${rag.shards.pool-size:10}") int poolSize,
+                       @Value("${rag.shards.timeout-ms:2000}") long timeoutMillis,
+                       @Value("${rag.shards.threads:0}") int threads) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+        shards.add(new Shard(0, "shard-0", jdbcTemplate, readOnly(transactionManager)));
+        List<String> extraUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        for (String url : extraUrls) {
+            int index = shards.size();
+            HikariDataSource dataSource = createDataSource("shard-" + index, url, username, password, poolSize);
+            ownedDataSources.add(dataSource);
+            initializeSchema(dataSource, index);
+            shards.add(new Shard(index, "shard-" + index, new JdbcTemplate(dataSource),
+                    readOnly(new DataSourceTransactionManager(dataSource))));
+        }
+        for (Shard shard : shards) {
+            boundedShards.add(new Shard(shard.index(), shard.name(), bounded(shard.jdbcTemplate(), timeoutMillis),
+                    shard.readOnlyTransaction()));
+        }
+        int poolThreads = threads > 0 ? threads : shards.size() * 4;
+        this.executor = shards.size() == 1 ? null : Executors.newFixedThreadPool(poolThreads, r -> {
+            Thread thread = new Thread(r, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (shards.size() > 1) {
+            log.info("Chunks are sharded over {} Postgres instances", shards.size());
+        }
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    public Shard primary() {
+        return shards.get(0);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public Shard forDocument(UUID documentId) {
+        return shards.get(Math.floorMod(documentId.hashCode(), shards.size()));
+    }
+
+    /**
+     * Groups items by the shard owning their document, in shard order.
+     */
+    public <T> Map<Shard, List<T>> partition(Collection<T> items, Function<T, UUID> documentId) {
+        Map<Shard, List<T>> byShard = new LinkedHashMap<>();
+        for (T item : items) {
+            byShard.computeIfAbsent(forDocument(documentId.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    /**
+     * Runs the query on every shard; see {@link #gather(String, Collection, Function)}.
+     */
+    public <T> List<List<T>> gather(String operation, Function<Shard, List<T>> query) {
+        return gather(operation, shards, query);
+    }
+
+    /**
+     * Runs the query on the given shards in parallel and returns one result list per shard, in the same order.
+     * A shard that fails or exceeds the timeout contributes an empty list. The query receives a view of its shard
+     * (equal to it) whose statements time out server-side after rag.shards.timeout-ms.
+     */
+    public <T> List<List<T>> gather(String operation, Collection<Shard> targets, Function<Shard, List<T>> query) {
+        if (targets.size() == 1 || executor == null) {
+            List<List<T>> results = new ArrayList<>(targets.size());
+            for (Shard shard : targets) {
+                results.add(timed(operation, shard, query));
+            }
+            return results;
+        }
+        List<Shard> ordered = List.copyOf(targets);
+        List<CompletableFuture<List<T>>> futures = ordered.stream()
+                .map(shard -> CompletableFuture.supplyAsync(
+                                () -> timed(operation, boundedShards.get(shard.index()), query), executor)
+                        .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS))
+                .toList();
+        List<List<T>> results = new ArrayList<>(ordered.size());
+        RuntimeException firstFailure = null;
+        int failed = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                boolean timedOut = cause instanceof TimeoutException;
+                meterRegistry.counter("rag.shard.failures", "operation", operation, "shard", ordered.get(i).name(),
+                        "cause", timedOut ? "timeout" : "error").increment();
+                log.warn("{} on {} {}: {}", operation, ordered.get(i).name(), timedOut ? "timed out" : "failed",
+                        cause.getMessage());
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+                failed++;
+                results.add(List.of());
+            }
+        }
+        if (failed == ordered.size()) {
+            throw new IllegalStateException(operation + " failed on every shard", firstFailure.getCause());
+        }
+        if (failed > 0) {
+            meterRegistry.counter("rag.shard.partial", "operation", operation).increment();
+        }
+        return results;
+    }
+
+    /**
+     * K-way merge of per-shard lists that are each sorted best-first by score (higher is better): a primitive
+     * min-heap holds the head of every list keyed by negated score, so each pick costs O(log shards).
+     */
+    public static <T> List<T> mergeTopK(List<List<T>> perShard, ToDoubleFunction<T> score, int topK) {
+        if (perShard.size() == 1) {
+            List<T> only = perShard.get(0);
+            return only.size() > topK ? only.subList(0, topK) : only;
+        }
+        int[] cursors = new int[perShard.size()];
+        FloatIntHeap heads = FloatIntHeap.minHeap(perShard.size());
+        for (int shard = 0; shard < perShard.size(); shard++) {
+            if (!perShard.get(shard).isEmpty()) {
+                heads.push((float) -score.applyAsDouble(perShard.get(shard).get(0)), shard);
+            }
+        }
+        List<T> merged = new ArrayList<>(topK);
+        while (merged.size() < topK && !heads.isEmpty()) {
+            int shard = heads.pop();
+            List<T> list = perShard.get(shard);
+            merged.add(list.get(cursors[shard]++));
+            if (cursors[shard] < list.size()) {
+                heads.push((float) -score.applyAsDouble(list.get(cursors[shard])), shard);
+            }
+        }
+        return merged;
+    }
+
+    private <T> List<T> timed(String operation, Shard shard, Function<Shard, List<T>> query) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return query.apply(shard);
+        } finally {
+            sample.stop(Timer.builder("rag.shard.query")
+                    .tag("operation", operation)
+                    .tag("shard", shard.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Same DataSource (so it joins the same transactions) with a statement timeout; JDBC counts it in whole seconds.
+     */
+    private static JdbcTemplate bounded(JdbcTemplate source, long timeoutMillis) {
+        JdbcTemplate template = new JdbcTemplate(source.getDataSource());
+        template.setFetchSize(source.getFetchSize());
+        template.setMaxRows(source.getMaxRows());
+        template.setQueryTimeout((int) Math.max(1, (timeoutMillis + 999) / 1000));
+        return template;
+    }
+
+    private static TransactionTemplate readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static HikariDataSource createDataSource(String name, String url, String username, String password,
+                                                     int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(Math.max(1, poolSize));
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        PgVectorDataSource.install(config);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * spring.sql.init only covers the primary, so each extra shard runs the idempotent chunk script itself.
+     * schema.sql (documents, categories, knowledge graph) is primary-only and is not run here.
+     */
+    private static void initializeSchema(DataSource dataSource, int index) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema-chunks.sql"));
+        populator.setContinueOnError(true);
+        try {
+            populator.execute(dataSource);
+        } catch (Exception e) {
+            log.warn("Schema initialization on shard-{} failed: {}", index, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        ownedDataSources.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,133 @@
+package com.randy.rag.service.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Row -> chunk metadata for in-memory indexes. Row numbers are the node ids the index structures use,
+ * so ids, document ids, chunk indexes and category ordinals live in parallel primitive arrays.
+ * Re-upserted chunks get a new row and the old row is tombstoned.
+ */
+public final class ChunkRowTable {
+
+    private long[] chunkMsb;
+    private long[] chunkLsb;
+    private long[] documentMsb;
+    private long[] documentLsb;
+    private int[] chunkIndexes;
+    private int[] categoryOrdinals;
+    private final BitSet deleted = new BitSet();
+    private final UuidIntMap rowByChunk;
+    private final Map<String, Integer> categoryOrdinalByName = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private int size;
+
+    public ChunkRowTable(int expected) {
+        int capacity = Math.max(expected, 16);
+        chunkMsb = new long[capacity];
+        chunkLsb = new long[capacity];
+        documentMsb = new long[capacity];
+        documentLsb = new long[capacity];
+        chunkIndexes = new int[capacity];
+        categoryOrdinals = new int[capacity];
+        rowByChunk = new UuidIntMap(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int liveCount() {
+        return size - deleted.cardinality();
+    }
+
+    /**
+     * Appends the chunk and returns its row; when the chunk was already present its previous row is tombstoned.
+     */
+    public int append(IndexedVector vector) {
+        if (size == chunkMsb.length) {
+            grow(size * 2);
+        }
+        int row = size++;
+        chunkMsb[row] = vector.chunkId().getMostSignificantBits();
+        chunkLsb[row] = vector.chunkId().getLeastSignificantBits();
+        documentMsb[row] = vector.documentId() == null ? 0L : vector.documentId().getMostSignificantBits();
+        documentLsb[row] = vector.documentId() == null ? 0L : vector.documentId().getLeastSignificantBits();
+        chunkIndexes[row] = vector.chunkIndex();
+        categoryOrdinals[row] = internCategory(vector.category());
+        int previous = rowByChunk.put(vector.chunkId(), row);
+        if (previous >= 0) {
+            deleted.set(previous);
+        }
+        return row;
+    }
+
+    /**
+     * Wrapping sum of (id msb XOR id lsb) over live rows; compared with {@link VectorCorpusLoader#fingerprint()}.
+     */
+    public long idChecksum() {
+        long sum = 0;
+        for (int row = 0; row < size; row++) {
+            if (!deleted.get(row)) {
+                sum += chunkMsb[row] ^ chunkLsb[row];
+            }
+        }
+        return sum;
+    }
+
+    public boolean isLive(int row) {
+        return !deleted.get(row);
+    }
+
+    public int rowOf(UUID chunkId) {
+        return rowByChunk.get(chunkId);
+    }
+
+    /**
+     * Ordinal to filter on, -1 for "no filter" and -2 when the category has never been indexed (nothing can match).
+     */
+    public int categoryFilter(String category) {
+        if (category == null || category.isBlank()) {
+            return -1;
+        }
+        Integer ordinal = categoryOrdinalByName.get(category);
+        return ordinal == null ? -2 : ordinal;
+    }
+
+    public boolean matches(int row, int categoryFilter) {
+        return !deleted.get(row) && (categoryFilter == -1 || categoryOrdinals[row] == categoryFilter);
+    }
+
+    public UUID chunkId(int row) {
+        return new UUID(chunkMsb[row], chunkLsb[row]);
+    }
+
+    public VectorHit hit(int row, double distance) {
+        UUID documentId = documentMsb[row] == 0L && documentLsb[row] == 0L ? null : new UUID(documentMsb[row], documentLsb[row]);
+        return new VectorHit(chunkId(row), documentId, chunkIndexes[row], distance);
+    }
+
+    private int internCategory(String category) {
+        if (category == null || category.isBlank()) {
+            return -3;
+        }
+        return categoryOrdinalByName.computeIfAbsent(category, c -> {
+            categoryNames.add(c);
+            return categoryNames.size() - 1;
+        });
+    }
+
+    private void grow(int capacity) {
+        chunkMsb = Arrays.copyOf(chunkMsb, capacity);
+        chunkLsb = Arrays.copyOf(chunkLsb, capacity);
+        documentMsb = Arrays.copyOf(documentMsb, capacity);
+        documentLsb = Arrays.copyOf(documentLsb, capacity);
+        chunkIndexes = Arrays.copyOf(chunkIndexes, capacity);
+        categoryOrdinals = Arrays.copyOf(categoryOrdinals, capacity);
+    }
+}
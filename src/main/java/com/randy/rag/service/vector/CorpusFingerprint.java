@@ -0,0 +1,8 @@
+package com.randy.rag.service.vector;
+
+/**
+ * What an on-disk index must match to be reused: embedded row count, the wrapping sum of (id msb XOR id lsb) over
+ * those rows, and a tag for the per-shard embedding column types (float32 vs halfvec).
+ */
+public record CorpusFingerprint(int count, long idChecksum, long layout) {
+}
@@ -0,0 +1,130 @@
+package com.randy.rag.service.vector;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (float key, int value) pairs backed by primitive arrays.
+ * A min-heap pops the smallest key first; a max-heap pops the largest, which makes it a bounded top-k collector.
+ */
+public final class FloatIntHeap {
+
+    private final boolean max;
+    private float[] keys;
+    private int[] values;
+    private int size;
+
+    private FloatIntHeap(int capacity, boolean max) {
+        this.max = max;
+        this.keys = new float[Math.max(capacity, 4)];
+        this.values = new int[Math.max(capacity, 4)];
+    }
+
+    public static FloatIntHeap minHeap(int capacity) {
+        return new FloatIntHeap(capacity, false);
+    }
+
+    public static FloatIntHeap maxHeap(int capacity) {
+        return new FloatIntHeap(capacity, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public float peekKey() {
+        return keys[0];
+    }
+
+    public int peekValue() {
+        return values[0];
+    }
+
+    public void push(float key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(key, keys[parent])) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Keeps only the best {@code limit} entries of a max-heap: pushes when there is room or the key beats the current worst.
+     */
+    public boolean offer(float key, int value, int limit) {
+        if (size < limit) {
+            push(key, value);
+            return true;
+        }
+        if (key < keys[0]) {
+            pop();
+            push(key, value);
+            return true;
+        }
+        return false;
+    }
+
+    public int pop() {
+        int top = values[0];
+        size--;
+        if (size > 0) {
+            float key = keys[size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && before(keys[right], keys[child])) {
+                    child = right;
+                }
+                if (!before(keys[child], key)) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+        return top;
+    }
+
+    /**
+     * Drains a max-heap into ascending-key order. Returns the values; keys are written into {@code keysOut} when given.
+     */
+    public int[] drainAscending(float[] keysOut) {
+        int n = size;
+        int[] out = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            if (keysOut != null) {
+                keysOut[i] = keys[0];
+            }
+            out[i] = pop();
+        }
+        return out;
+    }
+
+    private boolean before(float a, float b) {
+        return max ? a > b : a < b;
+    }
+}
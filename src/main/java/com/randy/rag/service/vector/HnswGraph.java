@@ -0,0 +1,314 @@
+package com.randy.rag.service.vector;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph over squared Euclidean distance.
+ * Vectors live in one growable float[] slab (node * dim), layer-0 adjacency in one int[] slab
+ * ([count, n1..nMax0] per node) and upper layers in a per-node int[] of the same shape per level.
+ * Not thread-safe: callers serialize writes and exclude them from concurrent searches.
+ */
+public final class HnswGraph {
+
+    private final int dim;
+    private final int m;
+    private final int maxNeighbors0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    private float[] vectors;
+    private int[] layer0;
+    private int[][] upperLayers;
+    private int[] levels;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswGraph(int dim, int m, int efConstruction, int expected) {
+        this.dim = dim;
+        this.m = Math.max(2, m);
+        this.maxNeighbors0 = this.m * 2;
+        this.efConstruction = Math.max(efConstruction, this.m);
+        this.levelMultiplier = 1 / Math.log(this.m);
+        int capacity = Math.max(expected, 16);
+        this.vectors = new float[capacity * dim];
+        this.layer0 = new int[capacity * (maxNeighbors0 + 1)];
+        this.upperLayers = new int[capacity][];
+        this.levels = new int[capacity];
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float[] vectors() {
+        return vectors;
+    }
+
+    /**
+     * Inserts a vector and returns its node id (dense, in insertion order).
+     */
+    public int add(float[] vector) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + " dimensions but got " + vector.length);
+        }
+        ensureCapacity(size + 1);
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dim, dim);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        levels[node] = level;
+        if (level > 0) {
+            upperLayers[node] = new int[level * (m + 1)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        float currentDistance = distance(vectors, node * dim, current);
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vectors, node * dim, current, currentDistance, layer);
+            currentDistance = distance(vectors, node * dim, current);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            FloatIntHeap nearest = searchLayer(vectors, node * dim, current, efConstruction, layer, efConstruction, null);
+            float[] keys = new float[nearest.size()];
+            int[] candidates = nearest.drainAscending(keys);
+            int maxForLayer = layer == 0 ? maxNeighbors0 : m;
+            int[] selected = selectNeighbors(node, candidates, keys, Math.min(m, maxForLayer));
+            setNeighbors(node, layer, selected, selected.length);
+            for (int neighbor : selected) {
+                link(neighbor, node, layer, maxForLayer);
+            }
+            current = candidates[0];
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * Approximate k nearest neighbors of query. Only nodes accepted by the filter are returned, but rejected nodes are
+     * still traversed, so a selective filter widens the walk instead of losing recall.
+     * Returns node ids ascending by distance; squared distances are written to distancesOut when it is non-null.
+     */
+    public int[] search(float[] query, int k, int ef, IntPredicate filter, float[] distancesOut) {
+        if (entryPoint < 0 || k <= 0) {
+            return new int[0];
+        }
+        int current = entryPoint;
+        float currentDistance = distance(query, 0, current);
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedyClosest(query, 0, current, currentDistance, layer);
+            currentDistance = distance(query, 0, current);
+        }
+        FloatIntHeap results = searchLayer(query, 0, current, Math.max(ef, k), 0, Math.max(ef, k), filter);
+        while (results.size() > k) {
+            results.pop();
+        }
+        float[] keys = new float[results.size()];
+        int[] ids = results.drainAscending(keys);
+        if (distancesOut != null) {
+            System.arraycopy(keys, 0, distancesOut, 0, Math.min(keys.length, distancesOut.length));
+        }
+        return ids;
+    }
+
+    /**
+     * Exhaustive scan over every node, used for exact-mode queries.
+     */
+    public int[] bruteForce(float[] query, int k, IntPredicate filter, float[] distancesOut) {
+        FloatIntHeap top = FloatIntHeap.maxHeap(k + 1);
+        for (int node = 0; node < size; node++) {
+            if (filter == null || filter.test(node)) {
+                top.offer(distance(query, 0, node), node, k);
+            }
+        }
+        float[] keys = new float[top.size()];
+        int[] ids = top.drainAscending(keys);
+        if (distancesOut != null) {
+            System.arraycopy(keys, 0, distancesOut, 0, Math.min(keys.length, distancesOut.length));
+        }
+        return ids;
+    }
+
+    private int greedyClosest(float[] query, int offset, int start, float startDistance, int layer) {
+        int current = start;
+        float best = startDistance;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = links(current, layer);
+            int base = linksOffset(current, layer);
+            int count = links[base];
+            for (int i = 1; i <= count; i++) {
+                int candidate = links[base + i];
+                float d = distance(query, offset, candidate);
+                if (d < best) {
+                    best = d;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private FloatIntHeap searchLayer(float[] query, int offset, int start, int ef, int layer, int limit, IntPredicate filter) {
+        Visited seen = visited.get();
+        seen.reset(size);
+        FloatIntHeap candidates = FloatIntHeap.minHeap(ef * 2);
+        FloatIntHeap results = FloatIntHeap.maxHeap(limit + 1);
+        float startDistance = distance(query, offset, start);
+        seen.mark(start);
+        candidates.push(startDistance, start);
+        if (filter == null || filter.test(start)) {
+            results.push(startDistance, start);
+        }
+        while (!candidates.isEmpty()) {
+            float candidateDistance = candidates.peekKey();
+            if (results.size() >= limit && candidateDistance > results.peekKey()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] links = links(candidate, layer);
+            int base = linksOffset(candidate, layer);
+            int count = links[base];
+            for (int i = 1; i <= count; i++) {
+                int neighbor = links[base + i];
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float d = distance(query, offset, neighbor);
+                if (results.size() < limit || d < results.peekKey()) {
+                    candidates.push(d, neighbor);
+                    if (filter == null || filter.test(neighbor)) {
+                        results.push(d, neighbor);
+                        if (results.size() > limit) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * HNSW neighbor-selection heuristic: keep a candidate only if it is closer to the base node than to any
+     * neighbor already kept, which preserves long-range links between clusters.
+     */
+    private int[] selectNeighbors(int base, int[] candidates, float[] distances, int max) {
+        int[] selected = new int[Math.min(max, candidates.length)];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            int candidate = candidates[i];
+            if (candidate == base) {
+                continue;
+            }
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(vectors, candidate * dim, selected[j]) < distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void link(int node, int newNeighbor, int layer, int maxForLayer) {
+        int[] links = links(node, layer);
+        int base = linksOffset(node, layer);
+        int count = links[base];
+        if (count < maxForLayer) {
+            links[base + count + 1] = newNeighbor;
+            links[base] = count + 1;
+            return;
+        }
+        // Full: re-run the heuristic over the existing neighbors plus the newcomer.
+        FloatIntHeap pool = FloatIntHeap.maxHeap(count + 2);
+        for (int i = 1; i <= count; i++) {
+            int existing = links[base + i];
+            pool.push(distance(vectors, node * dim, existing), existing);
+        }
+        pool.push(distance(vectors, node * dim, newNeighbor), newNeighbor);
+        float[] keys = new float[pool.size()];
+        int[] ordered = pool.drainAscending(keys);
+        int[] selected = selectNeighbors(node, ordered, keys, maxForLayer);
+        setNeighbors(node, layer, selected, selected.length);
+    }
+
+    private void setNeighbors(int node, int layer, int[] neighbors, int count) {
+        int[] links = links(node, layer);
+        int base = linksOffset(node, layer);
+        links[base] = count;
+        System.arraycopy(neighbors, 0, links, base + 1, count);
+    }
+
+    private int[] links(int node, int layer) {
+        return layer == 0 ? layer0 : upperLayers[node];
+    }
+
+    private int linksOffset(int node, int layer) {
+        return layer == 0 ? node * (maxNeighbors0 + 1) : (layer - 1) * (m + 1);
+    }
+
+    private float distance(float[] query, int offset, int node) {
+        return VectorMath.l2Squared(query, offset, vectors, node * dim, dim);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= levels.length) {
+            return;
+        }
+        int capacity = Math.max(required, levels.length + (levels.length >> 1));
+        vectors = Arrays.copyOf(vectors, capacity * dim);
+        layer0 = Arrays.copyOf(layer0, capacity * (maxNeighbors0 + 1));
+        upperLayers = Arrays.copyOf(upperLayers, capacity);
+        levels = Arrays.copyOf(levels, capacity);
+    }
+
+    /**
+     * Generation-stamped visited set so a search does not clear an n-sized array every time.
+     */
+    private static final class Visited {
+        private int[] stamps = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (stamps.length < size) {
+                stamps = new int[Math.max(size, stamps.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+        }
+
+        boolean mark(int node) {
+            if (stamps[node] == generation) {
+                return false;
+            }
+            stamps[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.randy.rag.service.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.model.SearchMode;
+
+/**
+ * In-JVM HNSW backend (vector.backend=hnsw). Serves /query vector search from memory; exact mode falls back
+ * to a brute-force scan of the same slab.
+ */
+@Component
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswVectorIndex.class);
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearchFast;
+    private final int efSearchBalanced;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object writeMutex = new Object();
+
+    private volatile Snapshot snapshot;
+    private List<IndexedVector> pendingDuringRebuild;
+
+    public HnswVectorIndex(@Value("${vector.hnsw.m:16}") int m,
+                           @Value("${vector.hnsw.ef-construction:100}") int efConstruction,
+                           @Value("${vector.hnsw.ef-search.fast:32}") int efSearchFast,
+                           @Value("${vector.hnsw.ef-search.balanced:128}") int efSearchBalanced) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearchFast = efSearchFast;
+        this.efSearchBalanced = efSearchBalanced;
+    }
+
+    @Override
+    public String name() {
+        return "hnsw";
+    }
+
+    @Override
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    @Override
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.rows.liveCount();
+    }
+
+    @Override
+    public void rebuild(VectorCorpusLoader loader) {
+        synchronized (writeMutex) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        int expected = loader.count();
+        Snapshot[] building = new Snapshot[1];
+        // Built off-lock; searches keep using the previous snapshot until the swap below.
+        loader.forEach(vector -> {
+            if (building[0] == null) {
+                building[0] = new Snapshot(new HnswGraph(vector.embedding().length, m, efConstruction, expected), new ChunkRowTable(expected));
+            }
+            building[0].append(vector);
+        });
+        synchronized (writeMutex) {
+            Snapshot built = building[0];
+            if (built == null && !pendingDuringRebuild.isEmpty()) {
+                // Empty corpus read, but chunks arrived meanwhile.
+                int dim = pendingDuringRebuild.get(0).embedding().length;
+                built = new Snapshot(new HnswGraph(dim, m, efConstruction, pendingDuringRebuild.size()),
+                        new ChunkRowTable(pendingDuringRebuild.size()));
+            }
+            if (built != null) {
+                // Rows committed just before the loader's cursor opened were both streamed and queued here.
+                for (IndexedVector vector : pendingDuringRebuild) {
+                    if (built.rows.rowOf(vector.chunkId()) < 0) {
+                        built.append(vector);
+                    }
+                }
+            }
+            pendingDuringRebuild = null;
+            lock.writeLock().lock();
+            try {
+                snapshot = built;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("HNSW index rebuilt with {} vectors in {} ms", size(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void release() {
+        synchronized (writeMutex) {
+            lock.writeLock().lock();
+            try {
+                snapshot = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void add(List<IndexedVector> vectors) {
+        synchronized (writeMutex) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.addAll(vectors);
+                if (snapshot == null) {
+                    // The first load is still streaming: a snapshot of just these chunks would make isReady() true
+                    // and answer every search from them. They are appended when the rebuild swaps in.
+                    return;
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (snapshot == null && !vectors.isEmpty()) {
+                    int dim = vectors.get(0).embedding().length;
+                    snapshot = new Snapshot(new HnswGraph(dim, m, efConstruction, vectors.size()), new ChunkRowTable(vectors.size()));
+                }
+                for (IndexedVector vector : vectors) {
+                    snapshot.append(vector);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<VectorHit> search(float[] query, int topK, String category, SearchMode mode) {
+        lock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null || query.length != current.graph.dim()) {
+                return List.of();
+            }
+            int filter = current.rows.categoryFilter(category);
+            if (filter == -2) {
+                return List.of();
+            }
+            float[] distances = new float[topK];
+            int[] nodes = mode == SearchMode.EXACT
+                    ? current.graph.bruteForce(query, topK, node -> current.rows.matches(node, filter), distances)
+                    : current.graph.search(query, topK, mode == SearchMode.FAST ? efSearchFast : efSearchBalanced,
+                    node -> current.rows.matches(node, filter), distances);
+            List<VectorHit> hits = new ArrayList<>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                hits.add(current.rows.hit(nodes[i], Math.sqrt(distances[i])));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Snapshot(HnswGraph graph, ChunkRowTable rows) {
+
+        void append(IndexedVector vector) {
+            if (vector.embedding() == null || vector.embedding().length != graph.dim()) {
+                return;
+            }
+            // Graph node ids and row ids advance together, so the row number doubles as the node id.
+            graph.add(vector.embedding());
+            rows.append(vector);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.randy.rag.service.vector;
+
+import java.util.UUID;
+
+public record IndexedVector(
+        UUID chunkId,
+        UUID documentId,
+        int chunkIndex,
+        String category,
+        float[] embedding) {
+}
@@ -0,0 +1,126 @@
+package com.randy.rag.service.vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scalar-quantized backend (vector.backend=int8): one byte per dimension, mapped linearly between the per-dimension
+ * min and max of a training sample (values outside are clamped). 4x smaller than float32; re-ranked exactly.
+ */
+@Component
+public class Int8VectorIndex extends QuantizedVectorIndex {
+
+    public Int8VectorIndex(@Value("${vector.quantized.rerank-directory:./data/vector-rerank}") String rerankDirectory,
+                           @Value("${vector.quantized.oversample:4}") int oversample,
+                           @Value("${vector.quantized.training-sample:50000}") int trainingSample) {
+        super(rerankDirectory, oversample, trainingSample);
+    }
+
+    @Override
+    public String name() {
+        return "int8";
+    }
+
+    @Override
+    protected CodeStore train(int dim, List<float[]> sample) {
+        float[] min = new float[dim];
+        float[] max = new float[dim];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (float[] vector : sample) {
+            for (int i = 0; i < dim; i++) {
+                min[i] = Math.min(min[i], vector[i]);
+                max[i] = Math.max(max[i], vector[i]);
+            }
+        }
+        return new Codes(dim, min, max);
+    }
+
+    private static final class Codes implements CodeStore {
+
+        private final int dim;
+        private final float[] min;
+        private final float[] step;
+        private final float[] stepSquared;
+        private byte[] codes;
+        private float[] rowTerms = new float[1024];
+        private int size;
+
+        Codes(int dim, float[] min, float[] max) {
+            this.dim = dim;
+            this.min = min;
+            this.step = new float[dim];
+            this.stepSquared = new float[dim];
+            for (int i = 0; i < dim; i++) {
+                float range = max[i] - min[i];
+                step[i] = range > 0 ? range / 255f : 1f;
+                stepSquared[i] = step[i] * step[i];
+            }
+            this.codes = new byte[dim * 1024];
+        }
+
+        @Override
+        public void append(float[] vector) {
+            if ((size + 1) * dim > codes.length) {
+                codes = Arrays.copyOf(codes, Math.max((size + 1) * dim, codes.length * 2));
+                rowTerms = Arrays.copyOf(rowTerms, codes.length / dim);
+            }
+            int base = size * dim;
+            float rowTerm = 0f;
+            for (int i = 0; i < dim; i++) {
+                int level = Math.round((vector[i] - min[i]) / step[i]);
+                byte code = (byte) (Math.max(0, Math.min(255, level)) - 128);
+                codes[base + i] = code;
+                rowTerm += stepSquared[i] * code * code;
+            }
+            rowTerms[size] = rowTerm;
+            size++;
+        }
+
+        @Override
+        public FloatIntHeap shortlist(float[] query, int shortlistSize, IntPredicate accept) {
+            // Asymmetric distance: the query stays in float, expressed in quantization steps s, and each dimension is
+            // weighted by step^2. Expanding sum(w * (s - c)^2) leaves a per-query constant, a per-row constant
+            // computed at append time, and one float x byte dot product per row.
+            float[] weighted = new float[dim];
+            for (int i = 0; i < dim; i++) {
+                float scaled = (query[i] - min[i]) / step[i] - 128f;
+                weighted[i] = -2f * stepSquared[i] * scaled;
+            }
+            FloatIntHeap top = FloatIntHeap.maxHeap(shortlistSize + 1);
+            byte[] slab = codes;
+            int bound = dim & ~3;
+            for (int row = 0; row < size; row++) {
+                if (!accept.test(row)) {
+                    continue;
+                }
+                int base = row * dim;
+                float s0 = 0f;
+                float s1 = 0f;
+                float s2 = 0f;
+                float s3 = 0f;
+                int i = 0;
+                for (; i < bound; i += 4) {
+                    s0 += weighted[i] * slab[base + i];
+                    s1 += weighted[i + 1] * slab[base + i + 1];
+                    s2 += weighted[i + 2] * slab[base + i + 2];
+                    s3 += weighted[i + 3] * slab[base + i + 3];
+                }
+                for (; i < dim; i++) {
+                    s0 += weighted[i] * slab[base + i];
+                }
+                top.offer(rowTerms[row] + (s0 + s1) + (s2 + s3), row, shortlistSize);
+            }
+            return top;
+        }
+
+        @Override
+        public int bytesPerVector() {
+            return dim;
+        }
+    }
+}
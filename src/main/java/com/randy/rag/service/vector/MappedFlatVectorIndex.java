@@ -0,0 +1,296 @@
+package com.randy.rag.service.vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.model.SearchMode;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Exact search backend (vector.backend=flat): every embedding lives in a memory-mapped file of contiguous
+ * float32 rows and each query is a parallel SIMD scan over all of them. Always exact, so the search mode is ignored.
+ */
+@Component
+public class MappedFlatVectorIndex implements VectorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedFlatVectorIndex.class);
+
+    private static final int ROWS_PER_TASK = 8192;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ForkJoinPool scanPool;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object writeMutex = new Object();
+
+    private volatile MappedVectorFile file;
+    private ChunkRowTable rows;
+    private List<IndexedVector> pendingDuringRebuild;
+    // Layout tag of the corpus the current file was built from; a file bootstrapped by add() after release() inherits it.
+    private volatile long layout;
+
+    public MappedFlatVectorIndex(@Value("${vector.flat.directory:./data/vector-flat}") String directory,
+                                 @Value("${vector.flat.segment-bytes:268435456}") long segmentBytes,
+                                 @Value("${vector.flat.scan-threads:0}") int scanThreads) {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.scanPool = new ForkJoinPool(scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public String name() {
+        return "flat";
+    }
+
+    @Override
+    public boolean isReady() {
+        return file != null;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows == null ? 0 : rows.liveCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void load(VectorCorpusLoader loader) {
+        try {
+            MappedVectorFile existing = MappedVectorFile.open(directory, 0, segmentBytes);
+            if (existing != null) {
+                Map<UUID, String> categories = loader.documentCategories();
+                ChunkRowTable table = new ChunkRowTable(existing.rowCount());
+                existing.forEachRow(table::append, categories::get);
+                // Same row count is not enough: deleted and re-added chunks, or a halfvec swap, keep the count.
+                CorpusFingerprint corpus = loader.fingerprint();
+                if (table.liveCount() == corpus.count() && table.idChecksum() == corpus.idChecksum()
+                        && existing.layout() == corpus.layout()) {
+                    layout = corpus.layout();
+                    swap(existing, table);
+                    log.info("Opened flat vector file {} with {} rows (simd={})", directory, table.liveCount(), VectorKernels.simdEnabled());
+                    return;
+                }
+                log.info("Flat vector file {} is stale ({} rows vs {} chunks, ids {}, layout {}); rebuilding", directory,
+                        table.liveCount(), corpus.count(), table.idChecksum() == corpus.idChecksum() ? "match" : "differ",
+                        existing.layout() == corpus.layout() ? "match" : "differs");
+                existing.close();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to open flat vector file {}: {}", directory, e.getMessage());
+        }
+        rebuild(loader);
+    }
+
+    @Override
+    public void rebuild(VectorCorpusLoader loader) {
+        synchronized (writeMutex) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        long corpusLayout = loader.fingerprint().layout();
+        Path staging = directory.resolveSibling(directory.getFileName() + ".rebuild");
+        MappedVectorFile[] building = new MappedVectorFile[1];
+        ChunkRowTable table = new ChunkRowTable(loader.count());
+        try {
+            loader.forEach(vector -> {
+                try {
+                    if (building[0] == null) {
+                        building[0] = MappedVectorFile.create(staging, vector.embedding().length, corpusLayout, segmentBytes);
+                    }
+                    append(building[0], table, vector);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            synchronized (writeMutex) {
+                MappedVectorFile built = building[0];
+                if (built == null && !pendingDuringRebuild.isEmpty()) {
+                    // Empty corpus read, but chunks arrived meanwhile.
+                    built = MappedVectorFile.create(staging, pendingDuringRebuild.get(0).embedding().length,
+                            corpusLayout, segmentBytes);
+                }
+                if (built != null) {
+                    for (IndexedVector vector : pendingDuringRebuild) {
+                        append(built, table, vector);
+                    }
+                    built.commit();
+                    Files.createDirectories(directory);
+                    // Existing mappings stay valid after the rename, so in-flight scans over the old file are unaffected.
+                    for (String name : List.of(MappedVectorFile.VECTORS_FILE, MappedVectorFile.ROWS_FILE)) {
+                        Files.move(staging.resolve(name), directory.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    built.close();
+                    layout = corpusLayout;
+                    swap(MappedVectorFile.open(directory, built.dim(), segmentBytes), table);
+                }
+                pendingDuringRebuild = null;
+            }
+        } catch (IOException e) {
+            synchronized (writeMutex) {
+                pendingDuringRebuild = null;
+            }
+            throw new UncheckedIOException("Failed to rebuild flat vector file " + directory, e);
+        }
+        log.info("Flat vector file rebuilt with {} rows in {} ms (simd={})", size(), System.currentTimeMillis() - start,
+                VectorKernels.simdEnabled());
+    }
+
+    /**
+     * Unmaps the file and drops the row table; the file itself stays on disk and is reused by a later load.
+     */
+    @Override
+    public void release() {
+        synchronized (writeMutex) {
+            lock.writeLock().lock();
+            try {
+                if (file != null) {
+                    file.close();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to close flat vector file {}: {}", directory, e.getMessage());
+            } finally {
+                file = null;
+                rows = null;
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void add(List<IndexedVector> vectors) {
+        synchronized (writeMutex) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.addAll(vectors);
+                if (file == null) {
+                    // The first load is still streaming: a file holding only these chunks would make isReady() true
+                    // and answer every search from them. The rebuild appends them before it swaps in.
+                    return;
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (file == null && !vectors.isEmpty()) {
+                    file = MappedVectorFile.create(directory, vectors.get(0).embedding().length, layout, segmentBytes);
+                    rows = new ChunkRowTable(vectors.size());
+                }
+                for (IndexedVector vector : vectors) {
+                    append(file, rows, vector);
+                }
+                file.commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to flat vector file " + directory, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<VectorHit> search(float[] query, int topK, String category, SearchMode mode) {
+        lock.readLock().lock();
+        try {
+            if (file == null || query.length != file.dim()) {
+                return List.of();
+            }
+            int filter = rows.categoryFilter(category);
+            if (filter == -2) {
+                return List.of();
+            }
+            int rowCount = file.rowCount();
+            int tasks = (rowCount + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+            FloatIntHeap merged = FloatIntHeap.maxHeap(topK + 1);
+            List<FloatIntHeap> partials = scanPool.submit(() -> IntStream.range(0, tasks).parallel()
+                    .mapToObj(task -> scan(query, topK, filter, task * ROWS_PER_TASK, Math.min(rowCount, (task + 1) * ROWS_PER_TASK)))
+                    .toList()).get();
+            for (FloatIntHeap partial : partials) {
+                while (!partial.isEmpty()) {
+                    float key = partial.peekKey();
+                    merged.offer(key, partial.pop(), topK);
+                }
+            }
+            float[] distances = new float[merged.size()];
+            int[] ordered = merged.drainAscending(distances);
+            List<VectorHit> hits = new ArrayList<>(ordered.length);
+            for (int i = 0; i < ordered.length; i++) {
+                hits.add(rows.hit(ordered[i], Math.sqrt(distances[i])));
+            }
+            return hits;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Flat vector scan failed", e.getCause());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private FloatIntHeap scan(float[] query, int topK, int filter, int from, int to) {
+        FloatIntHeap top = FloatIntHeap.maxHeap(topK + 1);
+        int rowsPerSegment = file.rowsPerSegment();
+        int rowBytes = file.rowBytes();
+        for (int row = from; row < to; row++) {
+            if (!rows.matches(row, filter)) {
+                continue;
+            }
+            ByteBuffer segment = file.segment(row / rowsPerSegment);
+            float distance = VectorKernels.l2Squared(segment, (row % rowsPerSegment) * rowBytes, query);
+            top.offer(distance, row, topK);
+        }
+        return top;
+    }
+
+    private void append(MappedVectorFile target, ChunkRowTable table, IndexedVector vector) throws IOException {
+        if (vector.embedding() == null || vector.embedding().length != target.dim()) {
+            return;
+        }
+        target.append(vector);
+        table.append(vector);
+    }
+
+    private void swap(MappedVectorFile newFile, ChunkRowTable newRows) throws IOException {
+        lock.writeLock().lock();
+        try {
+            MappedVectorFile previous = file;
+            file = newFile;
+            rows = newRows;
+            if (previous != null && previous != newFile) {
+                previous.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        scanPool.shutdownNow();
+        if (file != null) {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.randy.rag.service.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Append-only pair of files: {@code vectors.f32} holds contiguous little-endian float32 rows and is memory-mapped in
+ * fixed-size segments (off-heap, paged in by the OS); {@code rows.bin} maps each row to its chunk id, document id
+ * and chunk index. The row count in the rows.bin header is only advanced by {@link #commit()}, after the data is
+ * written, so a crash never exposes a half-written row. The header also records the corpus layout tag (see
+ * {@link CorpusFingerprint#layout()}) the rows were written from.
+ */
+final class MappedVectorFile implements AutoCloseable {
+
+    static final String VECTORS_FILE = "vectors.f32";
+    static final String ROWS_FILE = "rows.bin";
+
+    // Bumped when the header gained the layout tag, so files from older builds are rebuilt rather than trusted.
+    private static final int MAGIC = 0x52414747;
+    private static final int HEADER_BYTES = 24;
+    private static final int RECORD_BYTES = 4 * Long.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private final int dim;
+    private final int rowBytes;
+    private final int rowsPerSegment;
+    private final FileChannel vectorChannel;
+    private final FileChannel rowChannel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final long layout;
+    private int rowCount;
+
+    private MappedVectorFile(Path directory, int dim, long layout, long segmentBytes, int rowCount) throws IOException {
+        this.directory = directory;
+        this.dim = dim;
+        this.layout = layout;
+        this.rowBytes = dim * Float.BYTES;
+        this.rowsPerSegment = (int) Math.max(1, Math.min(segmentBytes, Integer.MAX_VALUE) / rowBytes);
+        this.vectorChannel = FileChannel.open(directory.resolve(VECTORS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.rowChannel = FileChannel.open(directory.resolve(ROWS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.rowCount = rowCount;
+        int needed = rowCount == 0 ? 1 : (rowCount - 1) / rowsPerSegment + 1;
+        for (int i = 0; i < needed; i++) {
+            mapSegment();
+        }
+    }
+
+    static MappedVectorFile create(Path directory, int dim, long layout, long segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(VECTORS_FILE));
+        Files.deleteIfExists(directory.resolve(ROWS_FILE));
+        MappedVectorFile file = new MappedVectorFile(directory, dim, layout, segmentBytes, 0);
+        file.commit();
+        return file;
+    }
+
+    /**
+     * Opens an existing file pair, or returns null when it is missing or was written with a different dimension.
+     */
+    static MappedVectorFile open(Path directory, int expectedDim, long segmentBytes) throws IOException {
+        Path rows = directory.resolve(ROWS_FILE);
+        if (!Files.exists(rows) || !Files.exists(directory.resolve(VECTORS_FILE))) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(rows, StandardOpenOption.READ)) {
+            if (channel.read(header, 0) < HEADER_BYTES) {
+                return null;
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            return null;
+        }
+        int dim = header.getInt();
+        long layout = header.getLong();
+        long count = header.getLong();
+        if (expectedDim > 0 && dim != expectedDim) {
+            return null;
+        }
+        return new MappedVectorFile(directory, dim, layout, segmentBytes, (int) count);
+    }
+
+    int dim() {
+        return dim;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    long layout() {
+        return layout;
+    }
+
+    int rowsPerSegment() {
+        return rowsPerSegment;
+    }
+
+    int rowBytes() {
+        return rowBytes;
+    }
+
+    ByteBuffer segment(int index) {
+        return segments.get(index);
+    }
+
+    int append(IndexedVector vector) throws IOException {
+        int row = rowCount;
+        int segmentIndex = row / rowsPerSegment;
+        while (segmentIndex >= segments.size()) {
+            mapSegment();
+        }
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        int offset = (row % rowsPerSegment) * rowBytes;
+        float[] embedding = vector.embedding();
+        for (int i = 0; i < dim; i++) {
+            segment.putFloat(offset + i * Float.BYTES, embedding[i]);
+        }
+        record.clear();
+        record.putLong(vector.chunkId().getMostSignificantBits());
+        record.putLong(vector.chunkId().getLeastSignificantBits());
+        record.putLong(vector.documentId() == null ? 0L : vector.documentId().getMostSignificantBits());
+        record.putLong(vector.documentId() == null ? 0L : vector.documentId().getLeastSignificantBits());
+        record.putInt(vector.chunkIndex());
+        record.flip();
+        rowChannel.write(record, HEADER_BYTES + (long) row * RECORD_BYTES);
+        rowCount++;
+        return row;
+    }
+
+    void commit() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(dim).putLong(layout).putLong(rowCount).flip();
+        rowChannel.write(header, 0);
+        rowChannel.force(false);
+    }
+
+    /**
+     * Replays the row table in append order; the embedding is left null to keep the replay off-heap.
+     */
+    void forEachRow(Consumer<IndexedVector> consumer, Function<UUID, String> categoryOf)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+        long position = HEADER_BYTES;
+        long end = HEADER_BYTES + (long) rowCount * RECORD_BYTES;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = rowChannel.read(buffer, position);
+            if (read <= 0) {
+                throw new IOException("Truncated " + ROWS_FILE + " in " + directory);
+            }
+            position += read;
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_BYTES) {
+                UUID chunkId = new UUID(buffer.getLong(), buffer.getLong());
+                long docHi = buffer.getLong();
+                long docLo = buffer.getLong();
+                UUID documentId = docHi == 0L && docLo == 0L ? null : new UUID(docHi, docLo);
+                consumer.accept(new IndexedVector(chunkId, documentId, buffer.getInt(), categoryOf.apply(documentId), null));
+            }
+            position -= buffer.remaining();
+        }
+    }
+
+    private void mapSegment() throws IOException {
+        long start = (long) segments.size() * rowsPerSegment * rowBytes;
+        MappedByteBuffer segment = vectorChannel.map(FileChannel.MapMode.READ_WRITE, start, (long) rowsPerSegment * rowBytes);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segments.add(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        vectorChannel.close();
+        rowChannel.close();
+    }
+}
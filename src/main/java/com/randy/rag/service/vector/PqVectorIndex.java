@@ -0,0 +1,253 @@
+package com.randy.rag.service.vector;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Product-quantized backend (vector.backend=pq). The vector is split into M subspaces, each with its own k-means
+ * codebook of up to 256 centroids trained in-process on a sample of chunks.embedding, so every chunk is stored as
+ * M bytes. Queries use asymmetric distance: one M x 256 lookup table per query, then M table reads per row.
+ */
+@Component
+public class PqVectorIndex extends QuantizedVectorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PqVectorIndex.class);
+
+    private static final int MAX_CENTROIDS = 256;
+
+    private final int subspaces;
+    private final int iterations;
+    private final long retrainIntervalMinutes;
+    private ScheduledExecutorService retrainScheduler;
+    private volatile LocalDateTime trainedAt;
+    private volatile double distortion;
+
+    public PqVectorIndex(@Value("${vector.quantized.rerank-directory:./data/vector-rerank}") String rerankDirectory,
+                         @Value("${vector.pq.oversample:16}") int oversample,
+                         @Value("${vector.pq.training-sample:10000}") int trainingSample,
+                         @Value("${vector.pq.subspaces:96}") int subspaces,
+                         @Value("${vector.pq.iterations:12}") int iterations,
+                         @Value("${vector.pq.retrain-interval-minutes:0}") long retrainIntervalMinutes) {
+        super(rerankDirectory, oversample, trainingSample);
+        this.subspaces = Math.max(1, subspaces);
+        this.iterations = Math.max(1, iterations);
+        this.retrainIntervalMinutes = retrainIntervalMinutes;
+    }
+
+    @Override
+    public String name() {
+        return "pq";
+    }
+
+    @Override
+    public synchronized void load(VectorCorpusLoader loader) {
+        super.load(loader);
+        // Only the serving backend is loaded at startup, so only it gets periodic retraining.
+        if (retrainIntervalMinutes > 0 && retrainScheduler == null) {
+            retrainScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "pq-retrain");
+                thread.setDaemon(true);
+                return thread;
+            });
+            retrainScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    // An admin rebuild in progress already retrains the codebooks; the next tick catches up.
+                    if (!rebuildIfIdle(loader)) {
+                        log.info("Skipping PQ retraining: a rebuild is already running");
+                    }
+                } catch (Exception e) {
+                    log.error("PQ retraining failed: {}", e.getMessage());
+                }
+            }, retrainIntervalMinutes, retrainIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, Object> description = super.describe();
+        description.put("subspaces", subspaces);
+        description.put("trainedAt", trainedAt);
+        description.put("trainingDistortion", distortion);
+        return description;
+    }
+
+    @Override
+    protected CodeStore train(int dim, List<float[]> sample) {
+        int m = Math.min(subspaces, dim);
+        int[] bounds = new int[m + 1];
+        for (int s = 0; s <= m; s++) {
+            bounds[s] = (int) ((long) s * dim / m);
+        }
+        int k = Math.min(MAX_CENTROIDS, sample.size());
+        long start = System.currentTimeMillis();
+        // Subspaces are independent, so their k-means runs are spread across cores.
+        float[][] codebooks = IntStream.range(0, m).parallel()
+                .mapToObj(s -> kMeans(sample, bounds[s], bounds[s + 1] - bounds[s], k, s))
+                .toArray(float[][]::new);
+        Codes codes = new Codes(dim, bounds, k, codebooks);
+        double error = 0;
+        for (float[] vector : sample) {
+            error += codes.reconstructionError(vector);
+        }
+        distortion = error / Math.max(1, sample.size());
+        trainedAt = LocalDateTime.now();
+        log.info("Trained PQ codebooks: {} subspaces x {} centroids on {} samples in {} ms (distortion {})",
+                m, k, sample.size(), System.currentTimeMillis() - start, distortion);
+        return codes;
+    }
+
+    private float[] kMeans(List<float[]> sample, int offset, int width, int k, int seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int n = sample.size();
+        float[] centroids = new float[k * width];
+        int[] order = IntStream.range(0, n).toArray();
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            System.arraycopy(sample.get(order[i]), offset, centroids, i * width, width);
+        }
+        int[] assignment = new int[n];
+        float[] sums = new float[k * width];
+        int[] counts = new int[k];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+            int changed = 0;
+            for (int i = 0; i < n; i++) {
+                float[] vector = sample.get(i);
+                int best = nearest(vector, offset, centroids, width, k);
+                if (best != assignment[i] || iteration == 0) {
+                    changed++;
+                }
+                assignment[i] = best;
+                counts[best]++;
+                for (int d = 0; d < width; d++) {
+                    sums[best * width + d] += vector[offset + d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // Re-seed empty clusters from a random sample point.
+                    System.arraycopy(sample.get(random.nextInt(n)), offset, centroids, c * width, width);
+                    continue;
+                }
+                for (int d = 0; d < width; d++) {
+                    centroids[c * width + d] = sums[c * width + d] / counts[c];
+                }
+            }
+            if (changed == 0) {
+                break;
+            }
+        }
+        return centroids;
+    }
+
+    private static int nearest(float[] vector, int offset, float[] centroids, int width, int k) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            float d = VectorMath.l2Squared(vector, offset, centroids, c * width, width);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (retrainScheduler != null) {
+            retrainScheduler.shutdownNow();
+        }
+    }
+
+    private static final class Codes implements CodeStore {
+
+        private final int dim;
+        private final int m;
+        private final int[] bounds;
+        private final int k;
+        private final float[][] codebooks;
+        private byte[] codes;
+        private int size;
+
+        Codes(int dim, int[] bounds, int k, float[][] codebooks) {
+            this.dim = dim;
+            this.m = bounds.length - 1;
+            this.bounds = bounds;
+            this.k = k;
+            this.codebooks = codebooks;
+            this.codes = new byte[m * 1024];
+        }
+
+        @Override
+        public void append(float[] vector) {
+            if ((size + 1) * m > codes.length) {
+                codes = Arrays.copyOf(codes, Math.max((size + 1) * m, codes.length * 2));
+            }
+            int base = size * m;
+            for (int s = 0; s < m; s++) {
+                codes[base + s] = (byte) nearest(vector, bounds[s], codebooks[s], bounds[s + 1] - bounds[s], k);
+            }
+            size++;
+        }
+
+        @Override
+        public FloatIntHeap shortlist(float[] query, int shortlistSize, IntPredicate accept) {
+            float[] table = new float[m * MAX_CENTROIDS];
+            for (int s = 0; s < m; s++) {
+                int width = bounds[s + 1] - bounds[s];
+                for (int c = 0; c < k; c++) {
+                    table[s * MAX_CENTROIDS + c] = VectorMath.l2Squared(query, bounds[s], codebooks[s], c * width, width);
+                }
+            }
+            FloatIntHeap top = FloatIntHeap.maxHeap(shortlistSize + 1);
+            byte[] slab = codes;
+            for (int row = 0; row < size; row++) {
+                if (!accept.test(row)) {
+                    continue;
+                }
+                int base = row * m;
+                float distance = 0f;
+                for (int s = 0; s < m; s++) {
+                    distance += table[s * MAX_CENTROIDS + (slab[base + s] & 0xFF)];
+                }
+                top.offer(distance, row, shortlistSize);
+            }
+            return top;
+        }
+
+        @Override
+        public int bytesPerVector() {
+            return m;
+        }
+
+        double reconstructionError(float[] vector) {
+            double error = 0;
+            for (int s = 0; s < m; s++) {
+                int width = bounds[s + 1] - bounds[s];
+                int c = nearest(vector, bounds[s], codebooks[s], width, k);
+                error += VectorMath.l2Squared(vector, bounds[s], codebooks[s], c * width, width);
+            }
+            return error;
+        }
+    }
+}
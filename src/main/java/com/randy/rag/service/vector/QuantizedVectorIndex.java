@@ -0,0 +1,315 @@
+package com.randy.rag.service.vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.randy.rag.model.SearchMode;
+
+/**
+ * Two-stage backend: a compact in-memory code per chunk produces a shortlist of oversample x topK candidates,
+ * which are then re-ranked against their full-precision embeddings. Those live in a memory-mapped float32 file per
+ * snapshot (the flat backend's format, under vector.quantized.rerank-directory), so re-ranking costs no database
+ * round trip and the OS keeps only the pages that shortlists touch resident.
+ * Subclasses supply the code format through {@link CodeStore}.
+ */
+public abstract class QuantizedVectorIndex implements VectorIndex {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final long RERANK_SEGMENT_BYTES = 64L << 20;
+
+    private final Path rerankDirectory;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final int oversample;
+    private final int trainingSample;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object writeMutex = new Object();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+    private List<IndexedVector> pendingDuringRebuild;
+
+    protected QuantizedVectorIndex(String rerankDirectory, int oversample, int trainingSample) {
+        this.rerankDirectory = Paths.get(rerankDirectory);
+        this.oversample = Math.max(1, oversample);
+        this.trainingSample = Math.max(1, trainingSample);
+    }
+
+    /**
+     * Compact per-row codes, appended in row order alongside the ChunkRowTable.
+     */
+    protected interface CodeStore {
+
+        void append(float[] vector);
+
+        /**
+         * Collects the best {@code size} accepted rows by approximate distance into a max-heap.
+         */
+        FloatIntHeap shortlist(float[] query, int size, IntPredicate accept);
+
+        int bytesPerVector();
+    }
+
+    protected abstract CodeStore train(int dim, List<float[]> sample);
+
+    @Override
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    @Override
+    public boolean supportsExact() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.rows.liveCount();
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, Object> description = VectorIndex.super.describe();
+        Snapshot current = snapshot;
+        if (current != null) {
+            int fullBytes = current.dim * Float.BYTES;
+            description.put("dimensions", current.dim);
+            description.put("bytesPerVector", current.codes.bytesPerVector());
+            description.put("fullPrecisionBytesPerVector", fullBytes);
+            description.put("compressionRatio", (double) fullBytes / current.codes.bytesPerVector());
+            description.put("codeBytes", (long) current.codes.bytesPerVector() * current.rows.size());
+            description.put("rerankFile", current.directory.toString());
+        }
+        description.put("oversample", oversample);
+        return description;
+    }
+
+    /**
+     * Rebuilds are serialized: the PQ retrain timer and an admin rebuild may both call this, and each run keeps its
+     * own list of vectors added while it streams the corpus.
+     */
+    @Override
+    public void rebuild(VectorCorpusLoader corpus) {
+        rebuildLock.lock();
+        try {
+            rebuildExclusively(corpus);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds unless another rebuild is already running; returns false when it skipped.
+     */
+    public boolean rebuildIfIdle(VectorCorpusLoader corpus) {
+        if (!rebuildLock.tryLock()) {
+            return false;
+        }
+        try {
+            rebuildExclusively(corpus);
+            return true;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildExclusively(VectorCorpusLoader corpus) {
+        List<IndexedVector> pending = new ArrayList<>();
+        synchronized (writeMutex) {
+            pendingDuringRebuild = pending;
+        }
+        long start = System.currentTimeMillis();
+        Snapshot built = null;
+        try {
+            List<float[]> sample = corpus.sample(trainingSample);
+            if (!sample.isEmpty()) {
+                int dim = sample.get(0).length;
+                built = newSnapshot(dim, train(dim, sample), corpus.count());
+                Snapshot target = built;
+                corpus.forEach(target::append);
+            }
+            synchronized (writeMutex) {
+                if (built == null && !pending.isEmpty()) {
+                    // Empty corpus read, but chunks arrived meanwhile.
+                    int dim = pending.get(0).embedding().length;
+                    built = newSnapshot(dim, train(dim, pending.stream().map(IndexedVector::embedding).toList()),
+                            pending.size());
+                }
+                if (built != null) {
+                    // Rows committed just before the loader's cursor opened were both streamed and queued here.
+                    for (IndexedVector vector : pending) {
+                        if (built.rows.rowOf(vector.chunkId()) < 0) {
+                            built.append(vector);
+                        }
+                    }
+                }
+                pendingDuringRebuild = null;
+                swap(built);
+            }
+        } catch (RuntimeException e) {
+            synchronized (writeMutex) {
+                pendingDuringRebuild = null;
+            }
+            if (built != null && built != snapshot) {
+                built.discard();
+            }
+            throw e;
+        }
+        log.info("{} index rebuilt with {} vectors ({} bytes each) in {} ms", name(), size(),
+                built == null ? 0 : built.codes.bytesPerVector(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void release() {
+        synchronized (writeMutex) {
+            swap(null);
+        }
+    }
+
+    /**
+     * Publishes the new snapshot and retires the previous one; searches hold the read lock for their whole
+     * duration (re-rank included), so nothing reads the old file once the write lock has been taken.
+     */
+    private void swap(Snapshot next) {
+        Snapshot previous;
+        lock.writeLock().lock();
+        try {
+            previous = snapshot;
+            snapshot = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (previous != null && previous != next) {
+            previous.discard();
+        }
+    }
+
+    private Snapshot newSnapshot(int dim, CodeStore codes, int expected) {
+        Path directory = rerankDirectory.resolve(name() + "-" + generation.incrementAndGet());
+        try {
+            return new Snapshot(dim, codes, new ChunkRowTable(expected),
+                    MappedVectorFile.create(directory, dim, 0L, RERANK_SEGMENT_BYTES), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create re-rank vector file " + directory, e);
+        }
+    }
+
+    @Override
+    public void add(List<IndexedVector> vectors) {
+        synchronized (writeMutex) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.addAll(vectors);
+                if (snapshot == null) {
+                    // The first load is still streaming: bootstrapping here would serve searches from this batch
+                    // alone and train the quantizer on it. The rebuild appends the queued chunks when it swaps in.
+                    return;
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (snapshot == null && !vectors.isEmpty()) {
+                    // Nothing to train on yet: bootstrap the quantizer from this first batch.
+                    int dim = vectors.get(0).embedding().length;
+                    snapshot = newSnapshot(dim, train(dim, vectors.stream().map(IndexedVector::embedding).toList()),
+                            vectors.size());
+                }
+                for (IndexedVector vector : vectors) {
+                    snapshot.append(vector);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<VectorHit> search(float[] query, int topK, String category, SearchMode mode) {
+        int factor = mode == SearchMode.FAST ? Math.max(1, oversample / 2) : oversample;
+        return search(query, topK, category, factor);
+    }
+
+    /**
+     * Search with an explicit shortlist factor; exposed for recall-vs-shortlist evaluation.
+     */
+    public List<VectorHit> search(float[] query, int topK, String category, int oversampleFactor) {
+        lock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null || query.length != current.dim) {
+                return List.of();
+            }
+            int filter = current.rows.categoryFilter(category);
+            if (filter == -2) {
+                return List.of();
+            }
+            FloatIntHeap shortlist = current.codes.shortlist(query, topK * Math.max(1, oversampleFactor),
+                    row -> current.rows.matches(row, filter));
+            FloatIntHeap exact = FloatIntHeap.maxHeap(topK + 1);
+            while (!shortlist.isEmpty()) {
+                int row = shortlist.pop();
+                exact.offer(current.l2Squared(row, query), row, topK);
+            }
+            float[] distances = new float[exact.size()];
+            int[] ordered = exact.drainAscending(distances);
+            List<VectorHit> hits = new ArrayList<>(ordered.length);
+            for (int i = 0; i < ordered.length; i++) {
+                hits.add(current.rows.hit(ordered[i], Math.sqrt(distances[i])));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Snapshot(int dim, CodeStore codes, ChunkRowTable rows, MappedVectorFile vectors, Path directory) {
+
+        void append(IndexedVector vector) {
+            if (vector.embedding() == null || vector.embedding().length != dim) {
+                return;
+            }
+            try {
+                vectors.append(vector);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to re-rank vector file " + directory, e);
+            }
+            codes.append(vector.embedding());
+            rows.append(vector);
+        }
+
+        float l2Squared(int row, float[] query) {
+            int rowsPerSegment = vectors.rowsPerSegment();
+            return VectorKernels.l2Squared(vectors.segment(row / rowsPerSegment),
+                    (row % rowsPerSegment) * vectors.rowBytes(), query);
+        }
+
+        /**
+         * The file only backs this snapshot; the mapping itself is released once the buffers are collected.
+         */
+        void discard() {
+            try {
+                vectors.close();
+                Files.deleteIfExists(directory.resolve(MappedVectorFile.VECTORS_FILE));
+                Files.deleteIfExists(directory.resolve(MappedVectorFile.ROWS_FILE));
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                LoggerFactory.getLogger(QuantizedVectorIndex.class)
+                        .warn("Unable to remove re-rank vector file {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.randy.rag.service.vector;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing UUID -> int map over primitive arrays so million-row indexes do not carry a boxed entry per chunk.
+ */
+public final class UuidIntMap {
+
+    private static final int EMPTY = -1;
+
+    private long[] msb;
+    private long[] lsb;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public UuidIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public int get(long hi, long lo) {
+        int slot = slot(hi, lo);
+        while (values[slot] != EMPTY) {
+            if (msb[slot] == hi && lsb[slot] == lo) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Associates key with value and returns the previous value, or -1 when the key was absent.
+     */
+    public int put(UUID key, int value) {
+        if ((size + 1) * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        long hi = key.getMostSignificantBits();
+        long lo = key.getLeastSignificantBits();
+        int slot = slot(hi, lo);
+        while (values[slot] != EMPTY) {
+            if (msb[slot] == hi && lsb[slot] == lo) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        msb[slot] = hi;
+        lsb[slot] = lo;
+        values[slot] = value;
+        size++;
+        return EMPTY;
+    }
+
+    private int slot(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+
+    private void allocate(int capacity) {
+        msb = new long[capacity];
+        lsb = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMsb = msb;
+        long[] oldLsb = lsb;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int slot = slot(oldMsb[i], oldLsb[i]);
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                msb[slot] = oldMsb[i];
+                lsb[slot] = oldLsb[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.randy.rag.service.vector;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.config.PgVector;
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+
+/**
+ * Streams chunk embeddings (with their category) out of Postgres, shard by shard, to (re)build in-memory indexes.
+ * Deduplicated chunks (embedding NULL, duplicate_of set) are skipped; results are mapped back to them at query time.
+ * Embeddings are always read as ::vector so halfvec shards decode through the same float32 codec.
+ */
+@Component
+public class VectorCorpusLoader {
+
+    private static final int FETCH_SIZE = 1000;
+    // TABLESAMPLE returns a rate, not a row count, so it aims past the sample size and LIMIT trims the excess.
+    private static final double SAMPLE_OVERSHOOT = 2.0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+
+    public VectorCorpusLoader(JdbcTemplate jdbcTemplate, ShardRouter shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+    }
+
+    public int count() {
+        int total = 0;
+        for (Shard shard : shardRouter.shards()) {
+            Integer count = shard.jdbcTemplate().queryForObject("SELECT COUNT(1) FROM chunks WHERE embedding IS NOT NULL", Integer.class);
+            total += count == null ? 0 : count;
+        }
+        return total;
+    }
+
+    /**
+     * Identity of the embedded corpus across all shards, cheap enough to check at startup: row count, an
+     * order-independent sum of (id high bits XOR id low bits) and the embedding column type of each shard.
+     */
+    public CorpusFingerprint fingerprint() {
+        int count = 0;
+        long idChecksum = 0;
+        StringBuilder layout = new StringBuilder();
+        for (Shard shard : shardRouter.shards()) {
+            Map<String, Object> row = shard.jdbcTemplate().queryForMap(
+                    "SELECT COUNT(1) AS row_count, COALESCE(SUM("
+                            + "('x' || substr(replace(id::text, '-', ''), 1, 16))::bit(64)::bigint # "
+                            + "('x' || substr(replace(id::text, '-', ''), 17, 16))::bit(64)::bigint), 0) AS id_sum "
+                            + "FROM chunks WHERE embedding IS NOT NULL");
+            count += ((Number) row.get("row_count")).intValue();
+            // SUM(bigint) is numeric and never overflows; keeping its low 64 bits matches Java's wrapping sum.
+            idChecksum += new BigDecimal(row.get("id_sum").toString()).toBigInteger().longValue();
+            layout.append(VectorStorage.columnType(shard, "embedding")).append(',');
+        }
+        return new CorpusFingerprint(count, idChecksum, layout.toString().hashCode());
+    }
+
+    public void forEach(Consumer<IndexedVector> consumer) {
+        for (Shard shard : shardRouter.shards()) {
+            forEach(shard, consumer);
+        }
+    }
+
+    private void forEach(Shard shard, Consumer<IndexedVector> consumer) {
+        // PgJDBC only honours the fetch size (server-side cursor) inside a transaction.
+        shard.readOnlyTransaction().executeWithoutResult(status -> shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT c.id, c.document_id, c.chunk_index, c.embedding::vector AS embedding, c.category "
+                            + "FROM chunks c WHERE c.embedding IS NOT NULL");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            PgVector embedding = (PgVector) rs.getObject("embedding");
+            consumer.accept(new IndexedVector(
+                    (UUID) rs.getObject("id"),
+                    (UUID) rs.getObject("document_id"),
+                    rs.getInt("chunk_index"),
+                    rs.getString("category"),
+                    embedding.toArray()));
+        }));
+    }
+
+    /**
+     * Random sample of stored embeddings, used to train quantizers and as evaluation queries. Each shard reads a
+     * TABLESAMPLE SYSTEM slice of its pages sized from the planner's row estimate, so only the sampled rows are read
+     * and detoasted; ORDER BY random() would sort the whole table and miss the shard statement timeout.
+     */
+    public List<float[]> sample(int size) {
+        List<float[]> sample = new ArrayList<>();
+        shardRouter.gather("sample", shard -> {
+            double percent = samplePercent(shard.jdbcTemplate(), size);
+            return shard.jdbcTemplate().query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("SELECT embedding::vector AS embedding "
+                        + "FROM chunks TABLESAMPLE SYSTEM (?::real) WHERE embedding IS NOT NULL LIMIT ?");
+                ps.setDouble(1, percent);
+                ps.setInt(2, size);
+                return ps;
+            }, (rs, rowNum) -> ((PgVector) rs.getObject("embedding")).toArray());
+        }).forEach(sample::addAll);
+        if (sample.size() > size) {
+            Collections.shuffle(sample);
+            return new ArrayList<>(sample.subList(0, size));
+        }
+        return sample;
+    }
+
+    /**
+     * Percentage of chunks pages to sample for about {@code size} rows. pg_class.reltuples is free to read, unlike
+     * COUNT(*); a table that has never been analyzed reports no estimate and is sampled whole.
+     */
+    private static double samplePercent(JdbcTemplate jdbc, int size) {
+        Long estimate = jdbc.queryForObject("SELECT reltuples::bigint FROM pg_class WHERE oid = 'chunks'::regclass", Long.class);
+        if (estimate == null || estimate <= 0) {
+            return 100.0;
+        }
+        return Math.min(100.0, 100.0 * size * SAMPLE_OVERSHOOT / estimate);
+    }
+
+    /**
+     * Full-precision embeddings for a candidate set, fetched in one primary-key lookup for re-ranking.
+     */
+    public Map<UUID, float[]> embeddingsFor(List<UUID> chunkIds) {
+        Map<UUID, float[]> embeddings = new HashMap<>(chunkIds.size() * 2);
+        if (chunkIds.isEmpty()) {
+            return embeddings;
+        }
+        shardRouter.gather("embeddings", shard -> shard.jdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id, embedding::vector AS embedding FROM chunks WHERE id = ANY(?) AND embedding IS NOT NULL");
+            ps.setArray(1, connection.createArrayOf("uuid", chunkIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> Map.entry((UUID) rs.getObject("id"), ((PgVector) rs.getObject("embedding")).toArray())))
+                .forEach(rows -> rows.forEach(row -> embeddings.put(row.getKey(), row.getValue())));
+        return embeddings;
+    }
+
+    public Map<UUID, String> documentCategories() {
+        Map<UUID, String> categories = new HashMap<>();
+        jdbcTemplate.query("SELECT id, category FROM documents", rs -> {
+            categories.put((UUID) rs.getObject("id"), rs.getString("category"));
+        });
+        return categories;
+    }
+
+    /**
+     * Document categories for chunks persisted without one, so chunks.category and in-memory indexes can filter on it.
+     */
+    public Map<UUID, String> categoriesFor(List<UUID> documentIds) {
+        Map<UUID, String> categories = new HashMap<>();
+        if (documentIds.isEmpty()) {
+            return categories;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id, category FROM documents WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", documentIds.toArray()));
+            return ps;
+        }, rs -> {
+            categories.put((UUID) rs.getObject("id"), rs.getString("category"));
+        });
+        return categories;
+    }
+}
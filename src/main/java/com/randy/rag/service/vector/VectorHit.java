@@ -0,0 +1,10 @@
+package com.randy.rag.service.vector;
+
+import java.util.UUID;
+
+public record VectorHit(
+        UUID chunkId,
+        UUID documentId,
+        int chunkIndex,
+        double distance) {
+}
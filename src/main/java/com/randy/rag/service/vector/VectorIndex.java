@@ -0,0 +1,58 @@
+package com.randy.rag.service.vector;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.randy.rag.model.SearchMode;
+
+/**
+ * In-process vector search backend that VectorStoreService can route queries to.
+ * Postgres stays the source of truth: implementations are rebuilt from the chunks table
+ * and kept current by VectorStoreService.persistChunks.
+ */
+public interface VectorIndex {
+
+    String name();
+
+    boolean isReady();
+
+    int size();
+
+    /**
+     * Startup hook; backends with their own persistent state may reuse it instead of reading the whole corpus.
+     */
+    default void load(VectorCorpusLoader loader) {
+        rebuild(loader);
+    }
+
+    void rebuild(VectorCorpusLoader loader);
+
+    /**
+     * Drops the in-memory state; the index reports not ready until it is rebuilt. Used for backends that were only
+     * built for an evaluation.
+     */
+    void release();
+
+    /**
+     * Whether {@link SearchMode#EXACT} is answered exactly; when not, VectorStoreService sends exact queries to Postgres.
+     */
+    default boolean supportsExact() {
+        return true;
+    }
+
+    default Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("backend", name());
+        description.put("ready", isReady());
+        description.put("vectors", size());
+        return description;
+    }
+
+    void add(List<IndexedVector> vectors);
+
+    /**
+     * Returns up to topK hits ordered by ascending Euclidean distance, restricted to category when it is non-blank.
+     */
+    List<VectorHit> search(float[] query, int topK, String category, SearchMode mode);
+}
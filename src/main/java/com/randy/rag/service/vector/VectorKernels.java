@@ -0,0 +1,67 @@
+package com.randy.rag.service.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Distance kernels over little-endian float32 rows in (memory-mapped) byte buffers.
+ * Uses the JDK Vector API kernel when the build included it (-Psimd) and the JVM was started with
+ * --add-modules jdk.incubator.vector, scalar code otherwise.
+ */
+public final class VectorKernels {
+
+    private static final String SIMD_KERNEL = "com.randy.rag.service.vector.SimdVectorKernels";
+
+    private static final Kernel SIMD = loadSimd();
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Implemented by the optional SIMD kernel; the scalar loops below are the fallback.
+     */
+    interface Kernel {
+
+        float l2Squared(ByteBuffer rows, int byteOffset, float[] query);
+
+        float dot(ByteBuffer rows, int byteOffset, float[] query);
+    }
+
+    public static boolean simdEnabled() {
+        return SIMD != null;
+    }
+
+    public static float l2Squared(ByteBuffer rows, int byteOffset, float[] query) {
+        if (SIMD != null) {
+            return SIMD.l2Squared(rows, byteOffset, query);
+        }
+        float sum = 0f;
+        for (int i = 0; i < query.length; i++) {
+            float d = rows.getFloat(byteOffset + i * Float.BYTES) - query[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    public static float dot(ByteBuffer rows, int byteOffset, float[] query) {
+        if (SIMD != null) {
+            return SIMD.dot(rows, byteOffset, query);
+        }
+        float sum = 0f;
+        for (int i = 0; i < query.length; i++) {
+            sum += rows.getFloat(byteOffset + i * Float.BYTES) * query[i];
+        }
+        return sum;
+    }
+
+    private static Kernel loadSimd() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName(SIMD_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Built without -Psimd: the kernel class is not on the classpath.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.randy.rag.service.vector;
+
+/**
+ * Distance kernels over flat float slabs. Written as 4-way unrolled loops so C2 can auto-vectorize them.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    public static float l2Squared(float[] a, int aOffset, float[] b, int bOffset, int dim) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        int bound = dim & ~3;
+        for (; i < bound; i += 4) {
+            float d0 = a[aOffset + i] - b[bOffset + i];
+            float d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            float d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            float d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < dim; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float l2Squared(float[] a, float[] b) {
+        return l2Squared(a, 0, b, 0, Math.min(a.length, b.length));
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int dim) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        int bound = dim & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < dim; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, Math.min(a.length, b.length));
+    }
+}
@@ -0,0 +1,86 @@
+package com.randy.rag.service.vector;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.randy.rag.service.shard.Shard;
+import com.randy.rag.service.shard.ShardRouter;
+
+/**
+ * Element type of chunks.embedding per shard: "vector" (float32) or "halfvec" (float16, half the disk,
+ * shared_buffers and index memory). SQL that binds a query vector or builds an index asks for the shard's actual
+ * column type rather than vector.storage, so a shard switches over the moment HalfvecMigrationJob swaps its column.
+ */
+@Component
+public class VectorStorage {
+
+    public static final String FLOAT32 = "vector";
+    public static final String HALFVEC = "halfvec";
+
+    // Other application instances pick up a swap made by this one (and vice versa) within this window.
+    private static final long RECHECK_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ShardRouter shardRouter;
+    private final String configuredType;
+    private final Map<Integer, CheckedType> columnTypes = new ConcurrentHashMap<>();
+
+    public VectorStorage(ShardRouter shardRouter,
+                         @Value("${vector.storage:float32}") String storage) {
+        this.shardRouter = shardRouter;
+        this.configuredType = "halfvec".equals(storage.trim().toLowerCase(Locale.ROOT)) ? HALFVEC : FLOAT32;
+    }
+
+    public String configuredType() {
+        return configuredType;
+    }
+
+    public String typeOf(Shard shard) {
+        CheckedType checked = columnTypes.get(shard.index());
+        if (checked == null || System.nanoTime() - checked.checkedAt() > RECHECK_NANOS) {
+            String type = HALFVEC.equals(columnType(shard, "embedding")) ? HALFVEC : FLOAT32;
+            checked = new CheckedType(type, System.nanoTime());
+            columnTypes.put(shard.index(), checked);
+        }
+        return checked.type();
+    }
+
+    public boolean isHalfvecEverywhere() {
+        return shardRouter.shards().stream().allMatch(shard -> HALFVEC.equals(typeOf(shard)));
+    }
+
+    /**
+     * Forgets the cached type after the column has been altered.
+     */
+    public void refresh(Shard shard) {
+        columnTypes.remove(shard.index());
+    }
+
+    /**
+     * Type name of a chunks column on the shard, or null when the column does not exist.
+     */
+    public static String columnType(Shard shard, String column) {
+        List<String> types = shard.jdbcTemplate().queryForList(
+                "SELECT t.typname FROM pg_attribute a JOIN pg_type t ON t.oid = a.atttypid "
+                        + "WHERE a.attrelid = 'chunks'::regclass AND a.attname = ? AND NOT a.attisdropped",
+                String.class, column);
+        return types.isEmpty() ? null : types.get(0);
+    }
+
+    /**
+     * Bind expression for a float32 PgVector parameter compared against a column of the given type.
+     * The wire format stays float32 (no float16 conversion before Java 20); Postgres narrows it.
+     */
+    public static String parameter(String type, int dimensions) {
+        String typmod = dimensions > 0 ? "(" + dimensions + ")" : "";
+        return HALFVEC.equals(type) ? "?::vector::halfvec" + typmod : "?::vector" + typmod;
+    }
+
+    private record CheckedType(String type, long checkedAt) {
+    }
+}
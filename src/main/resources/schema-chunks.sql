@@ -0,0 +1,37 @@
+-- Chunk storage, run on the primary (before schema.sql) and on every extra shard in rag.shards.urls.
+-- Everything here must only touch chunks-side tables: shards hold no documents, categories or graph tables.
+CREATE EXTENSION IF NOT EXISTS vector;
+
+CREATE TABLE IF NOT EXISTS chunks (
+    id UUID PRIMARY KEY,
+    document_id UUID NOT NULL,
+    chunk_index INT NOT NULL,
+    content TEXT NOT NULL,
+    embedding VECTOR(1536) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_chunks_document_id ON chunks(document_id);
+-- The ANN index on chunks.embedding (idx_chunks_embedding) is created and rebuilt by VectorIndexService.
+
+-- Full-text side of hybrid retrieval; 'simple' keeps names and codes unstemmed (see LexicalSearchService).
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', content)) STORED;
+CREATE INDEX IF NOT EXISTS idx_chunks_content_tsv ON chunks USING GIN (content_tsv);
+
+-- Chunk deduplication: identical text within a category is embedded once. Duplicates keep their own row
+-- (document position, content) but point at the canonical row via duplicate_of and store no embedding.
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS content_hash BYTEA;
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS duplicate_of UUID;
+ALTER TABLE chunks ALTER COLUMN embedding DROP NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_chunks_content_hash ON chunks(content_hash);
+CREATE INDEX IF NOT EXISTS idx_chunks_duplicate_of ON chunks(duplicate_of) WHERE duplicate_of IS NOT NULL;
+-- Rows stored before content_hash existed are filled in by ChunkBackfillJob, which records one-shot backfills here.
+CREATE TABLE IF NOT EXISTS schema_migrations (
+    name TEXT PRIMARY KEY,
+    completed_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Category denormalized from documents so filtered searches stay on chunks; large categories also get a
+-- partial ANN index (WHERE category = '...') built by VectorIndexService. ChunkBackfillJob fills older rows.
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS category TEXT;
+CREATE INDEX IF NOT EXISTS idx_chunks_category ON chunks(category);
@@ -1,14 +1,4 @@
-CREATE EXTENSION IF NOT EXISTS vector;
-
-CREATE TABLE IF NOT EXISTS chunks (
-    id UUID PRIMARY KEY,
-    document_id UUID NOT NULL,
-    chunk_index INT NOT NULL,
-    content TEXT NOT NULL,
-    embedding VECTOR(1536) NOT NULL
-);
-
-CREATE INDEX IF NOT EXISTS idx_chunks_document_id ON chunks(document_id);
+-- Primary-only tables (documents, categories, knowledge graph); chunks are defined in schema-chunks.sql.
 
 -- Knowledge graph tables (shared across all documents)
 CREATE TABLE IF NOT EXISTS documents (
@@ -38,6 +28,14 @@ CREATE TABLE IF NOT EXISTS entity_aliases (
     language TEXT
 );
 
+-- Maintained list of categories (CategoryService); index_name is the category's partial ANN index, if any.
+-- Categories of documents stored before this table existed are seeded once by ChunkBackfillJob.
+CREATE TABLE IF NOT EXISTS categories (
+    name TEXT PRIMARY KEY,
+    index_name TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
 CREATE INDEX IF NOT EXISTS idx_entities_canonical_key ON entities(canonical_key);
 CREATE INDEX IF NOT EXISTS idx_entity_aliases_alias ON entity_aliases(alias);
 
@@ -0,0 +1,51 @@
+package com.randy.rag.service.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * JDK Vector API kernels, compiled only with -Psimd (src/main/simd) so the default build stays free of incubator
+ * warnings. Loaded reflectively by {@link VectorKernels} when jdk.incubator.vector is in the boot layer.
+ */
+final class SimdVectorKernels implements VectorKernels.Kernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float l2Squared(ByteBuffer rows, int byteOffset, float[] query) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(query.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector row = FloatVector.fromByteBuffer(SPECIES, rows, byteOffset + i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            FloatVector diff = row.sub(FloatVector.fromArray(SPECIES, query, i));
+            acc = diff.fma(diff, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            float d = rows.getFloat(byteOffset + i * Float.BYTES) - query[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(ByteBuffer rows, int byteOffset, float[] query) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(query.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector row = FloatVector.fromByteBuffer(SPECIES, rows, byteOffset + i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            acc = row.fma(FloatVector.fromArray(SPECIES, query, i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            sum += rows.getFloat(byteOffset + i * Float.BYTES) * query[i];
+        }
+        return sum;
+    }
+}
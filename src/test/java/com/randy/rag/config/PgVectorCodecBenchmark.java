@@ -0,0 +1,83 @@
+package com.randy.rag.config;
+
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Client-side cost of one 1536-dim embedding in pgvector's binary send/recv format versus the "[0.1,...]" text
+ * literal that was bound before. The server-side literal parse is not covered; this only shows the binary path
+ * is not paying for its smaller payload on the JVM side.
+ * Run with: mvn test-compile, then java -cp target/test-classes:&lt;test classpath&gt;
+ * com.randy.rag.config.PgVectorCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgVectorCodecBenchmark {
+
+    private static final int DIMENSIONS = 1536;
+
+    private float[] embedding;
+    private byte[] binary;
+    private String literal;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        embedding = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            embedding[i] = (float) random.nextGaussian() * 0.03f;
+        }
+        PgVector vector = new PgVector(embedding);
+        binary = new byte[vector.lengthInBytes()];
+        vector.toBytes(binary, 0);
+        literal = PgVector.toLiteral(embedding);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        PgVector vector = new PgVector(embedding);
+        byte[] bytes = new byte[vector.lengthInBytes()];
+        vector.toBytes(bytes, 0);
+        return bytes;
+    }
+
+    @Benchmark
+    public String encodeLiteral() {
+        return PgVector.toLiteral(embedding);
+    }
+
+    @Benchmark
+    public float[] decodeBinary() throws SQLException {
+        PgVector vector = new PgVector();
+        vector.setByteValue(binary, 0);
+        return vector.toArray();
+    }
+
+    @Benchmark
+    public float[] decodeLiteral() {
+        return PgVector.parse(literal);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PgVectorCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
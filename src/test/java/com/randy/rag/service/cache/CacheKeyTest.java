@@ -0,0 +1,58 @@
+package com.randy.rag.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Keys must be equal exactly when the hashed inputs are: field boundaries, nulls and float bit patterns all count,
+ * and distinct inputs must not collide in practice.
+ */
+class CacheKeyTest {
+
+    @Test
+    void sameInputsGiveEqualKeys() {
+        CacheKey first = CacheKey.builder().putString("model").putInt(5).putFloats(new float[] {0.5f, -1f}).build();
+        CacheKey second = CacheKey.builder().putString("model").putInt(5).putFloats(new float[] {0.5f, -1f}).build();
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    void fieldBoundariesAndNullsAreDistinguished() {
+        assertNotEquals(key("ab", "c"), key("a", "bc"));
+        assertNotEquals(key("", "x"), key(null, "x"));
+        assertNotEquals(key("x", ""), key("x", null));
+        assertNotEquals(CacheKey.builder().putInt(1).putInt(2).build(), CacheKey.builder().putInt(2).putInt(1).build());
+        assertNotEquals(CacheKey.builder().putInt(0).build(), CacheKey.builder().putInt(0).putInt(0).build());
+        assertNotEquals(CacheKey.builder().build(), CacheKey.builder().putInt(0).build());
+        assertNotEquals(CacheKey.builder().putFloats(new float[] {0f}).build(),
+                CacheKey.builder().putFloats(new float[] {-0f}).build());
+    }
+
+    @Test
+    void distinctInputsDoNotCollide() {
+        Random random = new Random(99);
+        Set<CacheKey> keys = new HashSet<>();
+        Set<Long> highs = new HashSet<>();
+        int n = 200_000;
+        for (int i = 0; i < n; i++) {
+            // Near-identical inputs (one counter, one random word) are the hard case for a weak mix.
+            CacheKey key = CacheKey.builder().putString("query " + i).putInt(i % 7).putInt(random.nextInt()).build();
+            keys.add(key);
+            highs.add(key.high());
+        }
+        assertEquals(n, keys.size());
+        // Each half on its own should already be collision-free at this scale.
+        assertEquals(n, highs.size());
+    }
+
+    private static CacheKey key(String first, String second) {
+        return CacheKey.builder().putString(first).putString(second).build();
+    }
+}
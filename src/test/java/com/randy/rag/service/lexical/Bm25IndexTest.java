@@ -0,0 +1,179 @@
+package com.randy.rag.service.lexical;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.randy.rag.model.ChunkSearchResult;
+
+/**
+ * MaxScore pruning must not change the answer: top-k from {@link Bm25Index} is compared with scoring every chunk
+ * exhaustively, on 3k seeded chunks whose words follow a Zipf-like distribution (a few very common terms with low
+ * upper bounds, many rare ones), which is where pruning actually skips postings.
+ */
+class Bm25IndexTest {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int VOCABULARY = 2_000;
+
+    @Test
+    void maxScoreTopKMatchesExhaustiveScoring() {
+        List<ChunkText> chunks = corpus(3_000, 17);
+        Bm25Index index = new Bm25Index(K1, B);
+        index.add(chunks);
+        assertEquals(chunks.size(), index.size());
+        Exhaustive exhaustive = new Exhaustive(chunks);
+
+        Random random = new Random(3);
+        for (int q = 0; q < 200; q++) {
+            StringBuilder query = new StringBuilder();
+            int terms = 1 + random.nextInt(6);
+            for (int t = 0; t < terms; t++) {
+                query.append(word(zipf(random))).append(' ');
+            }
+            int topK = 1 + random.nextInt(20);
+            String category = q % 4 == 0 ? "even" : null;
+            assertSameRanking(exhaustive.search(query.toString(), topK, category),
+                    index.search(query.toString(), topK, category), query.toString());
+        }
+    }
+
+    @Test
+    void reindexedChunkReplacesItsPreviousText() {
+        UUID id = UUID.randomUUID();
+        Bm25Index index = new Bm25Index(K1, B);
+        index.add(List.of(new ChunkText(id, UUID.randomUUID(), 0, null, "alpha beta"),
+                new ChunkText(UUID.randomUUID(), UUID.randomUUID(), 1, null, "gamma")));
+        index.add(List.of(new ChunkText(id, UUID.randomUUID(), 0, null, "delta")));
+        assertEquals(2, index.size());
+        assertTrue(index.search("alpha", 5, null).isEmpty());
+        assertEquals(id, index.search("delta", 5, null).get(0).chunkId());
+    }
+
+    @Test
+    void uploadDuringFirstLoadDoesNotServeAPartialIndex() {
+        List<ChunkText> chunks = corpus(500, 23);
+        UUID uploaded = UUID.randomUUID();
+        Bm25Index index = new Bm25Index(K1, B);
+        index.rebuild(new ChunkTextLoader(null) {
+            @Override
+            public int count() {
+                return chunks.size();
+            }
+
+            @Override
+            public void forEach(Consumer<ChunkText> consumer) {
+                chunks.subList(0, 250).forEach(consumer);
+                index.add(List.of(new ChunkText(uploaded, UUID.randomUUID(), 0, null, "zyzzyva")));
+                // Not ready, so LexicalSearchService keeps querying Postgres until the load has finished.
+                assertFalse(index.isReady());
+                chunks.subList(250, chunks.size()).forEach(consumer);
+            }
+        });
+        assertEquals(501, index.size());
+        assertEquals(uploaded, index.search("zyzzyva", 1, null).get(0).chunkId());
+    }
+
+    private static void assertSameRanking(List<ChunkSearchResult> expected, List<ChunkSearchResult> actual,
+                                          String query) {
+        assertEquals(expected.size(), actual.size(), "result count for '" + query + "'");
+        for (int i = 0; i < expected.size(); i++) {
+            // Ids may differ only where scores tie, so compare the score at each rank.
+            assertEquals(expected.get(i).similarity(), actual.get(i).similarity(), 1e-4,
+                    "score at rank " + i + " for '" + query + "'");
+        }
+    }
+
+    /**
+     * Straight BM25 over every chunk, with the same idf and length normalization as the index.
+     */
+    private static final class Exhaustive {
+
+        private final List<ChunkText> chunks;
+        private final List<Map<String, Integer>> frequencies = new ArrayList<>();
+        private final int[] lengths;
+        private final Map<String, Integer> documentFrequency = new HashMap<>();
+        private final float averageLength;
+
+        Exhaustive(List<ChunkText> chunks) {
+            this.chunks = chunks;
+            this.lengths = new int[chunks.size()];
+            long totalLength = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                Map<String, Integer> tf = new HashMap<>();
+                List<String> tokens = TextTokenizer.tokens(chunks.get(i).content());
+                tokens.forEach(token -> tf.merge(token, 1, Integer::sum));
+                tf.keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+                frequencies.add(tf);
+                lengths[i] = tokens.size();
+                totalLength += tokens.size();
+            }
+            this.averageLength = Math.max(1f, (float) totalLength / chunks.size());
+        }
+
+        List<ChunkSearchResult> search(String query, int topK, String category) {
+            List<ChunkSearchResult> scored = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                ChunkText chunk = chunks.get(i);
+                if (category != null && !category.equals(chunk.category())) {
+                    continue;
+                }
+                float score = 0f;
+                boolean matched = false;
+                for (String term : TextTokenizer.distinctTerms(query, 32)) {
+                    Integer tf = frequencies.get(i).get(term);
+                    if (tf == null) {
+                        continue;
+                    }
+                    matched = true;
+                    int df = documentFrequency.get(term);
+                    float idf = (float) Math.log(1 + (chunks.size() - df + 0.5) / (df + 0.5));
+                    float norm = K1 * (1 - B + B * lengths[i] / averageLength);
+                    score += idf * tf * (K1 + 1) / (tf + norm);
+                }
+                if (matched) {
+                    scored.add(new ChunkSearchResult(chunk.chunkId(), chunk.documentId(), chunk.chunkIndex(),
+                            chunk.content(), score));
+                }
+            }
+            scored.sort((x, y) -> Double.compare(y.similarity(), x.similarity()));
+            return scored.subList(0, Math.min(topK, scored.size()));
+        }
+    }
+
+    private static List<ChunkText> corpus(int size, long seed) {
+        Random random = new Random(seed);
+        List<ChunkText> chunks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int length = 5 + random.nextInt(120);
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < length; w++) {
+                text.append(word(zipf(random))).append(' ');
+            }
+            chunks.add(new ChunkText(new UUID(random.nextLong(), random.nextLong()),
+                    new UUID(random.nextLong(), random.nextLong()), i, i % 2 == 0 ? "even" : "odd",
+                    text.toString()));
+        }
+        return chunks;
+    }
+
+    private static int zipf(Random random) {
+        // Inverse-transform sample of a 1/rank distribution over the vocabulary.
+        return (int) Math.min(VOCABULARY - 1, Math.floor(Math.exp(random.nextDouble() * Math.log(VOCABULARY))) - 1);
+    }
+
+    private static String word(int rank) {
+        return "w" + rank;
+    }
+}
@@ -0,0 +1,88 @@
+package com.randy.rag.service.lexical;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Varint encoding and skip blocks: every appended posting must come back unchanged, whether read sequentially or
+ * reached through advance().
+ */
+class PostingListTest {
+
+    @Test
+    void cursorReturnsEveryPostingInOrder() {
+        Random random = new Random(11);
+        int n = 5_000;
+        int[] rows = new int[n];
+        int[] tfs = new int[n];
+        PostingList list = new PostingList();
+        int row = -1;
+        int maxTf = 0;
+        int minLength = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            // Mix one-byte deltas with gaps that need three and four varint bytes.
+            row += switch (i % 3) {
+                case 0 -> 1 + random.nextInt(100);
+                case 1 -> 1 + random.nextInt(50_000);
+                default -> 1 + random.nextInt(3_000_000);
+            };
+            rows[i] = row;
+            tfs[i] = 1 + random.nextInt(i % 50 == 0 ? 100_000 : 5);
+            int length = 1 + random.nextInt(2_000);
+            list.append(rows[i], tfs[i], length);
+            maxTf = Math.max(maxTf, tfs[i]);
+            minLength = Math.min(minLength, length);
+        }
+        assertEquals(n, list.count());
+        assertEquals(maxTf, list.maxTf());
+        assertEquals(minLength, list.minDocLength());
+
+        PostingList.Cursor cursor = list.cursor();
+        for (int i = 0; i < n; i++) {
+            assertEquals(rows[i], cursor.row(), "row of posting " + i);
+            assertEquals(tfs[i], cursor.tf(), "tf of posting " + i);
+            cursor.next();
+        }
+        assertEquals(PostingList.END, cursor.row());
+    }
+
+    @Test
+    void advanceLandsOnFirstRowAtOrAfterTarget() {
+        PostingList list = new PostingList();
+        int n = 2_000;
+        for (int i = 0; i < n; i++) {
+            list.append(i * 3, i % 7 + 1, 10);
+        }
+        Random random = new Random(5);
+        PostingList.Cursor cursor = list.cursor();
+        int target = 0;
+        while (target < 3 * n) {
+            // Jumps from within a block up to several blocks ahead exercise the skip entries.
+            target += 1 + random.nextInt(random.nextBoolean() ? 10 : 2_000);
+            cursor.advance(target);
+            int expected = (target + 2) / 3;
+            if (expected >= n) {
+                assertEquals(PostingList.END, cursor.row());
+                break;
+            }
+            assertEquals(expected * 3, cursor.row(), "advance(" + target + ")");
+            assertEquals(expected % 7 + 1, cursor.tf());
+        }
+        cursor.advance(Integer.MAX_VALUE - 1);
+        assertEquals(PostingList.END, cursor.row());
+    }
+
+    @Test
+    void cursorSeesOnlyPostingsAppendedBeforeIt() {
+        PostingList list = new PostingList();
+        list.append(4, 2, 8);
+        PostingList.Cursor cursor = list.cursor();
+        list.append(9, 1, 8);
+        assertEquals(4, cursor.row());
+        cursor.next();
+        assertEquals(PostingList.END, cursor.row());
+    }
+}
@@ -0,0 +1,95 @@
+package com.randy.rag.service.vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Recall of the Hamming shortlist + memory-mapped re-rank against brute force, on 20k clustered 384-dim vectors
+ * (32 clusters). Measured recall@10 over 50 queries: shortlist 10 = 0.14, 40 = 0.34, 160 = 0.66, 320 = 0.86,
+ * 640 = 1.00. The bounds below leave headroom so the test guards against regressions, not exact numbers.
+ */
+class BinaryVectorIndexTest {
+
+    private static final int K = 10;
+    private static final int QUERIES = 50;
+
+    @TempDir
+    Path rerankDirectory;
+
+    @Test
+    void recallGrowsWithShortlistAndReachesBruteForce() {
+        InMemoryCorpus corpus = new InMemoryCorpus(20_000, 384, 32, 42);
+        BinaryVectorIndex index = new BinaryVectorIndex(rerankDirectory.toString(), 16, 50_000);
+        index.rebuild(corpus);
+        assertEquals(corpus.count(), index.size());
+
+        List<float[]> queries = new ArrayList<>();
+        List<List<UUID>> truth = new ArrayList<>();
+        for (int q = 0; q < QUERIES; q++) {
+            queries.add(corpus.query(q * 37));
+            truth.add(corpus.bruteForce(queries.get(q), K, null));
+        }
+        double previous = 0;
+        for (int factor : new int[] {1, 4, 16, 32, 64}) {
+            double recall = recall(index, queries, truth, factor);
+            assertTrue(recall + 0.02 >= previous, "recall must not drop as the shortlist grows");
+            previous = recall;
+        }
+        assertTrue(recall(index, queries, truth, 32) >= 0.8, "default oversample recall");
+        assertTrue(previous >= 0.99, "a 64x shortlist should match brute force");
+    }
+
+    @Test
+    void rerankReturnsExactDistancesInOrder() {
+        InMemoryCorpus corpus = new InMemoryCorpus(2_000, 64, 8, 7);
+        BinaryVectorIndex index = new BinaryVectorIndex(rerankDirectory.toString(), 16, 50_000);
+        index.rebuild(corpus);
+        float[] query = corpus.query(3);
+        List<VectorHit> hits = index.search(query, K, null, 200);
+        assertEquals(K, hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            VectorHit hit = hits.get(i);
+            float[] stored = corpus.vectors.stream().filter(v -> v.chunkId().equals(hit.chunkId())).findFirst()
+                    .orElseThrow().embedding();
+            assertEquals(Math.sqrt(VectorMath.l2Squared(query, stored)), hit.distance(), 1e-5);
+            if (i > 0) {
+                assertTrue(hits.get(i - 1).distance() <= hit.distance());
+            }
+        }
+        assertEquals(corpus.bruteForce(query, K, null), hits.stream().map(VectorHit::chunkId).toList());
+    }
+
+    @Test
+    void uploadDuringFirstLoadDoesNotServeAPartialIndex() {
+        InMemoryCorpus corpus = new InMemoryCorpus(2_000, 64, 8, 8);
+        InMemoryCorpus upload = new InMemoryCorpus(5, 64, 8, 9);
+        BinaryVectorIndex index = new BinaryVectorIndex(rerankDirectory.toString(), 16, 50_000);
+        corpus.midStream = () -> {
+            index.add(upload.vectors);
+            assertFalse(index.isReady());
+        };
+        index.rebuild(corpus);
+        assertEquals(2_005, index.size());
+        IndexedVector added = upload.vectors.get(1);
+        assertEquals(added.chunkId(), index.search(added.embedding(), 1, null, 16).get(0).chunkId());
+    }
+
+    private static double recall(BinaryVectorIndex index, List<float[]> queries, List<List<UUID>> truth, int factor) {
+        double sum = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            List<UUID> expected = truth.get(q);
+            List<UUID> found = index.search(queries.get(q), K, null, factor).stream().map(VectorHit::chunkId).toList();
+            sum += (double) found.stream().filter(expected::contains).count() / expected.size();
+        }
+        return sum / queries.size();
+    }
+}
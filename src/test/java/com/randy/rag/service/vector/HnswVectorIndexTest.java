@@ -0,0 +1,80 @@
+package com.randy.rag.service.vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.randy.rag.model.SearchMode;
+
+/**
+ * Recall of the in-JVM HNSW graph against brute force on 5k clustered 128-dim vectors, with the default
+ * m / efConstruction / efSearch settings.
+ */
+class HnswVectorIndexTest {
+
+    private static final int K = 10;
+    private static final int QUERIES = 100;
+
+    @Test
+    void balancedSearchRecallsNearlyAllTrueNeighbours() {
+        InMemoryCorpus corpus = new InMemoryCorpus(5_000, 128, 16, 21);
+        HnswVectorIndex index = new HnswVectorIndex(16, 100, 32, 128);
+        index.rebuild(corpus);
+        assertEquals(corpus.count(), index.size());
+
+        double balanced = recall(index, corpus, SearchMode.BALANCED, null);
+        double fast = recall(index, corpus, SearchMode.FAST, null);
+        assertTrue(balanced >= 0.95, "balanced recall@10 was " + balanced);
+        assertTrue(fast >= 0.8, "fast recall@10 was " + fast);
+        assertTrue(recall(index, corpus, SearchMode.BALANCED, "even") >= 0.9, "filtered recall");
+        assertEquals(1.0, recall(index, corpus, SearchMode.EXACT, null), 1e-9);
+    }
+
+    @Test
+    void vectorsAddedAfterRebuildAreSearchable() {
+        InMemoryCorpus corpus = new InMemoryCorpus(1_000, 32, 4, 9);
+        HnswVectorIndex index = new HnswVectorIndex(16, 100, 32, 128);
+        index.rebuild(corpus);
+        InMemoryCorpus extra = new InMemoryCorpus(10, 32, 4, 10);
+        index.add(extra.vectors);
+        assertEquals(1_010, index.size());
+        IndexedVector added = extra.vectors.get(3);
+        List<VectorHit> hits = index.search(added.embedding(), 1, null, SearchMode.BALANCED);
+        assertEquals(added.chunkId(), hits.get(0).chunkId());
+        assertEquals(0.0, hits.get(0).distance(), 1e-6);
+    }
+
+    @Test
+    void uploadDuringFirstLoadDoesNotServeAPartialIndex() {
+        InMemoryCorpus corpus = new InMemoryCorpus(1_000, 32, 4, 12);
+        InMemoryCorpus upload = new InMemoryCorpus(5, 32, 4, 13);
+        HnswVectorIndex index = new HnswVectorIndex(16, 100, 32, 128);
+        corpus.midStream = () -> {
+            index.add(upload.vectors);
+            // Not ready, so VectorStoreService keeps searching Postgres until the load has finished.
+            assertFalse(index.isReady());
+            assertTrue(index.search(upload.vectors.get(0).embedding(), 1, null, SearchMode.BALANCED).isEmpty());
+        };
+        index.rebuild(corpus);
+        assertTrue(index.isReady());
+        assertEquals(1_005, index.size());
+        IndexedVector added = upload.vectors.get(2);
+        assertEquals(added.chunkId(), index.search(added.embedding(), 1, null, SearchMode.BALANCED).get(0).chunkId());
+    }
+
+    private static double recall(HnswVectorIndex index, InMemoryCorpus corpus, SearchMode mode, String category) {
+        double sum = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = corpus.query(q * 31);
+            List<UUID> expected = corpus.bruteForce(query, K, category);
+            List<UUID> found = index.search(query, K, category, mode).stream().map(VectorHit::chunkId).toList();
+            sum += (double) found.stream().filter(expected::contains).count() / expected.size();
+        }
+        return sum / QUERIES;
+    }
+}
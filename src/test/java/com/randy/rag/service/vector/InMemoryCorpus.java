@@ -0,0 +1,117 @@
+package com.randy.rag.service.vector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Seeded synthetic corpus served through the VectorCorpusLoader API: normalized vectors scattered around a few
+ * cluster centres, which is roughly how sentence embeddings of a document collection are distributed.
+ */
+final class InMemoryCorpus extends VectorCorpusLoader {
+
+    final List<IndexedVector> vectors = new ArrayList<>();
+    private final Random random;
+    // Run once halfway through forEach, to act like an upload landing while a rebuild streams the corpus.
+    Runnable midStream;
+
+    InMemoryCorpus(int size, int dim, int clusters, long seed) {
+        super(null, null);
+        this.random = new Random(seed);
+        float[][] centres = new float[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            centres[c] = gaussian(dim, 1f);
+        }
+        for (int i = 0; i < size; i++) {
+            float[] vector = gaussian(dim, 0.35f);
+            float[] centre = centres[random.nextInt(clusters)];
+            for (int d = 0; d < dim; d++) {
+                vector[d] += centre[d];
+            }
+            vectors.add(new IndexedVector(new UUID(random.nextLong(), random.nextLong()),
+                    new UUID(random.nextLong(), random.nextLong()), i, i % 2 == 0 ? "even" : "odd", normalize(vector)));
+        }
+    }
+
+    /**
+     * A corpus vector with some noise added, so queries land near (not on) stored rows.
+     */
+    float[] query(int index) {
+        float[] base = vectors.get(index).embedding();
+        float[] noise = gaussian(base.length, 0.05f);
+        for (int d = 0; d < base.length; d++) {
+            noise[d] += base[d];
+        }
+        return normalize(noise);
+    }
+
+    /**
+     * Exact top-k chunk ids by Euclidean distance, optionally restricted to a category.
+     */
+    List<UUID> bruteForce(float[] query, int k, String category) {
+        FloatIntHeap top = FloatIntHeap.maxHeap(k + 1);
+        for (int i = 0; i < vectors.size(); i++) {
+            IndexedVector vector = vectors.get(i);
+            if (category == null || category.equals(vector.category())) {
+                top.offer(VectorMath.l2Squared(query, vector.embedding()), i, k);
+            }
+        }
+        int[] ordered = top.drainAscending(new float[top.size()]);
+        List<UUID> ids = new ArrayList<>(ordered.length);
+        for (int i : ordered) {
+            ids.add(vectors.get(i).chunkId());
+        }
+        return ids;
+    }
+
+    @Override
+    public int count() {
+        return vectors.size();
+    }
+
+    @Override
+    public void forEach(Consumer<IndexedVector> consumer) {
+        for (int i = 0; i < vectors.size(); i++) {
+            if (i == vectors.size() / 2 && midStream != null) {
+                midStream.run();
+            }
+            consumer.accept(vectors.get(i));
+        }
+    }
+
+    @Override
+    public List<float[]> sample(int size) {
+        List<float[]> sample = new ArrayList<>(vectors.stream().map(IndexedVector::embedding).toList());
+        Collections.shuffle(sample, new Random(1));
+        return sample.subList(0, Math.min(size, sample.size()));
+    }
+
+    @Override
+    public Map<UUID, float[]> embeddingsFor(List<UUID> chunkIds) {
+        throw new AssertionError("in-memory backends must not fetch embeddings from the database");
+    }
+
+    private float[] gaussian(int dim, float scale) {
+        float[] vector = new float[dim];
+        for (int d = 0; d < dim; d++) {
+            vector[d] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] *= inverse;
+        }
+        return vector;
+    }
+}